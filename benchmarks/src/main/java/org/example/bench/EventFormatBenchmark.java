@@ -0,0 +1,107 @@
+package org.example.bench;
+
+import org.example.event.EventEmitter;
+import org.example.event.EventFormatter;
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+import org.example.event.sink.ConsoleSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of rendering the console line format. {@code legacy} is the original
+ * StringJoiner/Optional implementation; run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm} to see allocation per event. {@code emitter} is the whole
+ * synchronous emit path: metrics, formatting and a {@link ConsoleSink} writing to nowhere.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventFormatBenchmark {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private WorkflowEvent[] events;
+    private EventFormatter formatter;
+    private EventEmitter emitter;
+    private int next;
+
+    @Setup
+    public void setup() {
+        OffsetDateTime now = OffsetDateTime.now();
+        events = new WorkflowEvent[64];
+        for (int i = 0; i < events.length; i++) {
+            boolean step = i % 4 != 0;
+            events[i] = new WorkflowEvent(
+                    now.plusNanos(i * 1_234_567L),
+                    step ? EventType.STEP_COMPLETED : EventType.JOB_STARTED,
+                    "octo/matrix",
+                    19823269680L + i,
+                    56790344506L + i,
+                    step ? i % 12 + 1 : null,
+                    "main",
+                    "c42a342",
+                    step ? "success" : "in_progress",
+                    step ? "Step completed: Run tests (\"shard " + i + "\")" : "Job started: build"
+            );
+        }
+        formatter = new EventFormatter(false);
+        emitter = new EventEmitter(List.of(new ConsoleSink(false, OutputStream.nullOutputStream())));
+    }
+
+    private WorkflowEvent nextEvent() {
+        WorkflowEvent event = events[next];
+        next = (next + 1) & (events.length - 1);
+        return event;
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        return (legacyFormat(nextEvent()) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int formatter() {
+        return formatter.encodeLine(nextEvent());
+    }
+
+    @Benchmark
+    public void emitter() {
+        emitter.emit(nextEvent());
+    }
+
+    static String legacyFormat(WorkflowEvent event) {
+        StringJoiner sj = new StringJoiner(" | ");
+        sj.add(ISO.format(event.getTimeStamp()));
+        sj.add(event.getEventType().name());
+        sj.add("run=" + event.getRunId());
+        event.getJobId().ifPresentOrElse(id -> sj.add("job=" + id), () -> sj.add("job=-"));
+        event.getStepNumber().ifPresentOrElse(step -> sj.add("step=" + step), () -> sj.add("step=-"));
+        event.getBranch().ifPresentOrElse(b -> sj.add("branch=" + b), () -> sj.add("branch=-"));
+        event.getShaShort().ifPresentOrElse(sha -> sj.add("sha=" + sha), () -> sj.add("sha=-"));
+        event.getStatus().ifPresentOrElse(st -> sj.add("status=" + st), () -> sj.add("status=-"));
+        event.getMessage().ifPresentOrElse(
+                msg -> sj.add("msg=\"" + msg.replace("\"", "\\\"") + "\""),
+                () -> sj.add("msg=-"));
+        return sj.toString();
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.bench.sim.SimulatedGitHub;
+import org.example.bench.sim.SimulationConfig;
+import org.example.github.GitHubClient;
+import org.example.github.TokenPool;
+import org.example.github.model.JobsResponse;
+import org.example.github.model.WorkflowRun;
+import org.example.github.traffic.RecordedExchange;
+import org.example.github.traffic.TrafficRecorder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Recorded API responses shared by the benchmarks: one page of 100 runs and the jobs of one
+ * 100-job matrix run at three moments of its execution, stored as a traffic archive
+ * ({@link TrafficRecorder}) in {@value #ARCHIVE}. Smaller fan-outs are cut from the same
+ * payloads with {@link #sliceJobs}, keeping every field of the jobs that remain.
+ * <p>
+ * The archive is recorded from {@link SimulatedGitHub}, so re-recording is reproducible:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.example.bench.Fixtures benchmarks/src/main/resources/fixtures/matrix-100.traffic.gz
+ * </pre>
+ * Changing the fixtures moves every baseline, so results are only comparable between runs
+ * that used the same archive.
+ */
+public final class Fixtures {
+
+    public static final String ARCHIVE = "/fixtures/matrix-100.traffic.gz";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static List<RecordedExchange> exchanges;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Mapper configured like the one in {@link GitHubClient}.
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static synchronized List<RecordedExchange> exchanges() {
+        if (exchanges == null) {
+            exchanges = read();
+        }
+        return exchanges;
+    }
+
+    public static byte[] runsPage() {
+        for (RecordedExchange exchange : exchanges()) {
+            if (exchange.getPath().contains("/actions/runs?")) {
+                return bytes(exchange);
+            }
+        }
+        throw new IllegalStateException("No run listing in " + ARCHIVE);
+    }
+
+    /**
+     * Bodies of the jobs listing in the order they were recorded; the run progresses from
+     * one to the next.
+     */
+    public static List<byte[]> jobsStates() {
+        List<byte[]> states = new ArrayList<>();
+        for (RecordedExchange exchange : exchanges()) {
+            if (exchange.getPath().contains("/jobs?")) {
+                states.add(bytes(exchange));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * The run whose jobs {@link #jobsStates()} holds, as listed in {@link #runsPage()}.
+     */
+    public static WorkflowRun matrixRun() {
+        try {
+            long runId = MAPPER.readTree(jobsStates().get(0)).path("jobs").path(0).path("run_id").asLong();
+            JsonNode runs = MAPPER.readTree(runsPage()).path("workflow_runs");
+            for (JsonNode run : runs) {
+                if (run.path("id").asLong() == runId) {
+                    return MAPPER.treeToValue(run, WorkflowRun.class);
+                }
+            }
+            throw new IllegalStateException("Run " + runId + " is not in the recorded listing");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The first {@code jobs} jobs of a recorded jobs body, re-encoded with all their fields.
+     */
+    public static byte[] sliceJobs(byte[] body, int jobs) {
+        try {
+            ObjectNode root = (ObjectNode) MAPPER.readTree(body);
+            ArrayNode all = (ArrayNode) root.get("jobs");
+            ArrayNode kept = MAPPER.createArrayNode();
+            for (int i = 0; i < Math.min(jobs, all.size()); i++) {
+                kept.add(all.get(i));
+            }
+            root.put("total_count", kept.size());
+            root.set("jobs", kept);
+            return MAPPER.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static JobsResponse decodeJobs(byte[] body) {
+        try {
+            return MAPPER.readValue(body, JobsResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] bytes(RecordedExchange exchange) {
+        return exchange.getBody().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<RecordedExchange> read() {
+        ObjectReader reader = MAPPER.readerFor(RecordedExchange.class);
+        List<RecordedExchange> read = new ArrayList<>();
+
+        try (InputStream in = Fixtures.class.getResourceAsStream(ARCHIVE)) {
+            if (in == null) {
+                throw new IllegalStateException(ARCHIVE + " is not on the classpath");
+            }
+            BufferedReader lines = new BufferedReader(new InputStreamReader(new GZIPInputStream(in), StandardCharsets.UTF_8));
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (!line.isBlank()) {
+                    read.add(reader.readValue(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return read;
+    }
+
+    /**
+     * Records a fresh archive: the run listing once, then the jobs of the newest executing
+     * run three times, four seconds apart.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: Fixtures <archive.gz>");
+            System.exit(2);
+        }
+
+        SimulationConfig config = new SimulationConfig(1, 100, 100, 10, 3, 2, 0.05, 5000, 42);
+        SimulatedGitHub sim = new SimulatedGitHub(config, new InetSocketAddress("127.0.0.1", 0), 4);
+        sim.start();
+
+        TrafficRecorder recorder = new TrafficRecorder(Path.of(args[0]));
+        try {
+            GitHubClient client = new GitHubClient(TokenPool.of("fixtures"), sim.getBaseUrl(), List.of(recorder));
+            String repo = SimulatedGitHub.repoName(0);
+
+            WorkflowRun executing = null;
+            for (WorkflowRun run : client.listWorkflowRuns(SimulatedGitHub.OWNER, repo).getWorkflowRuns()) {
+                if ("in_progress".equals(run.getStatus())) {
+                    executing = run;
+                    break;
+                }
+            }
+            if (executing == null) {
+                throw new IllegalStateException("The simulation has no executing run");
+            }
+
+            for (int i = 0; i < 3; i++) {
+                if (i > 0) {
+                    Thread.sleep(4000);
+                }
+                client.listJobs(SimulatedGitHub.OWNER, repo, executing.getId());
+            }
+        } finally {
+            recorder.close();
+            sim.stop();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.example.github.model.JobsResponse;
+import org.example.github.model.WorkflowRunsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson decoding of recorded API payloads from a stream, as {@code GitHubClient} reads
+ * response bodies: a jobs page of {@code 1}, {@code 20} or {@code 100} jobs, or a page of
+ * {@code 100} runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadDecodeBenchmark {
+
+    @Param({"jobs-1", "jobs-20", "jobs-100", "runs-100"})
+    private String payload;
+
+    private byte[] body;
+    private ObjectReader reader;
+
+    @Setup
+    public void setup() {
+        if (payload.startsWith("runs-")) {
+            body = Fixtures.runsPage();
+            reader = Fixtures.mapper().readerFor(WorkflowRunsResponse.class);
+        } else {
+            List<byte[]> states = Fixtures.jobsStates();
+            int jobs = Integer.parseInt(payload.substring("jobs-".length()));
+            body = Fixtures.sliceJobs(states.get(states.size() - 1), jobs);
+            reader = Fixtures.mapper().readerFor(JobsResponse.class);
+        }
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return reader.readValue(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.bench;
+
+import org.example.bench.sim.SimulatedGitHub;
+import org.example.bench.sim.SimulationConfig;
+import org.example.event.EventEmitter;
+import org.example.event.WorkflowEvent;
+import org.example.event.sink.EventSink;
+import org.example.github.GitHubClient;
+import org.example.github.TokenPool;
+import org.example.monitor.JobFetcher;
+import org.example.monitor.MonitorEngine;
+import org.example.state.StateStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@link MonitorEngine}s against {@link SimulatedGitHub} at increasing numbers of
+ * repositories and prints, per step, the poll cycle latency, the CPU the monitor used, its live
+ * heap and the events it emitted per second.
+ * <p>
+ * Every engine is polled once per {@code --interval} seconds, all engines of a round in
+ * parallel on {@code --poll-threads} threads; a round that takes longer than the interval is
+ * followed by the next one at once. The first round discovers the runs already in progress and
+ * is not measured. By default the simulator runs in this process on its own threads, whose CPU
+ * is subtracted; pass {@code --api-url} to measure against a simulator started separately.
+ * <pre>
+ * mvn -B install -DskipTests
+ * mvn -B -f benchmarks/pom.xml package
+ * java -cp benchmarks/target/benchmarks.jar org.example.bench.ScaleBenchmark --repos 1,10,100 --matrix 100
+ * </pre>
+ * The remaining options shape the simulated load, see {@link SimulationConfig#fromArgs}.
+ */
+public class ScaleBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+
+        Map<String, String> options = SimulatedGitHub.parseArgs(args);
+        int[] steps = Arrays.stream(options.getOrDefault("repos", "1,10,100").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim()))
+                .toArray();
+        long durationMillis = Long.parseLong(options.getOrDefault("duration", "60")) * 1000;
+        long intervalMillis = Long.parseLong(options.getOrDefault("interval", "5")) * 1000;
+        int pollThreads = Integer.parseInt(options.getOrDefault("poll-threads", "8"));
+        int fetchParallelism = Integer.parseInt(options.getOrDefault("fetch-parallelism", "16"));
+        String externalUrl = options.get("api-url");
+
+        System.out.printf("%6s %8s %7s %9s %9s %9s %7s %9s %10s %9s %7s%n",
+                "repos", "runs", "polls", "p50 ms", "p95 ms", "max ms", "cores", "heap MiB", "events/s", "requests", "304 %");
+
+        for (int repos : steps) {
+            SimulationConfig config = SimulationConfig.fromArgs(options, repos);
+            Result result = runStep(config, externalUrl, durationMillis, intervalMillis, pollThreads, fetchParallelism);
+            System.out.printf("%6d %8d %7d %9.1f %9.1f %9.1f %7.2f %9.1f %10.1f %9d %7.1f%n",
+                    repos, result.trackedRuns, result.polls, result.p50Millis, result.p95Millis, result.maxMillis,
+                    result.cores, result.heapMiB, result.eventsPerSecond, result.requests, result.notModifiedPercent);
+        }
+    }
+
+    private static Result runStep(SimulationConfig config, String externalUrl, long durationMillis,
+                                  long intervalMillis, int pollThreads, int fetchParallelism) throws Exception {
+        SimulatedGitHub sim = null;
+        String baseUrl = externalUrl;
+        if (baseUrl == null) {
+            sim = new SimulatedGitHub(config, new InetSocketAddress("127.0.0.1", 0), Math.max(4, fetchParallelism));
+            sim.start();
+            baseUrl = sim.getBaseUrl();
+        }
+
+        Path stateDir = Files.createTempDirectory("ghawatch-scale");
+        GitHubClient client = new GitHubClient(TokenPool.of("scale-benchmark"), baseUrl, List.of());
+        JobFetcher jobFetcher = new JobFetcher(client, fetchParallelism);
+        CountingSink events = new CountingSink();
+        EventEmitter emitter = new EventEmitter(List.of(events));
+
+        List<MonitorEngine> engines = new ArrayList<>();
+        for (int i = 0; i < config.getRepos(); i++) {
+            String repo = SimulatedGitHub.repoName(i);
+            StateStore store = new StateStore(stateDir.resolve(repo).resolve("state.json").toString());
+            engines.add(new MonitorEngine(client, jobFetcher, null, null, null, null, store, emitter,
+                    SimulatedGitHub.OWNER, repo, intervalMillis));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(pollThreads);
+        try {
+            pollRound(engines, pool, new ArrayList<>());
+
+            List<Long> latencies = new ArrayList<>();
+            long eventsBefore = events.count.get();
+            long requestsBefore = client.getCacheHits() + client.getCacheMisses();
+            long hitsBefore = client.getCacheHits();
+            long cpuBefore = processCpuNanos() - (sim == null ? 0 : sim.cpuNanos());
+            long start = System.nanoTime();
+            long end = start + durationMillis * 1_000_000;
+
+            while (System.nanoTime() < end) {
+                long roundStart = System.nanoTime();
+                pollRound(engines, pool, latencies);
+                long sleep = intervalMillis - (System.nanoTime() - roundStart) / 1_000_000;
+                if (sleep > 0) {
+                    Thread.sleep(Math.min(sleep, Math.max(0, (end - System.nanoTime()) / 1_000_000)));
+                }
+            }
+
+            double wallNanos = System.nanoTime() - start;
+            long cpu = processCpuNanos() - (sim == null ? 0 : sim.cpuNanos()) - cpuBefore;
+            long requests = client.getCacheHits() + client.getCacheMisses() - requestsBefore;
+            long hits = client.getCacheHits() - hitsBefore;
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            Result result = new Result();
+            result.trackedRuns = engines.stream().mapToInt(MonitorEngine::getSnapshotCount).sum();
+            result.polls = sorted.length;
+            result.p50Millis = percentile(sorted, 0.50) / 1e6;
+            result.p95Millis = percentile(sorted, 0.95) / 1e6;
+            result.maxMillis = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+            result.cores = cpu / wallNanos;
+            result.eventsPerSecond = (events.count.get() - eventsBefore) / (wallNanos / 1e9);
+            result.requests = requests;
+            result.notModifiedPercent = requests == 0 ? 0 : 100.0 * hits / requests;
+
+            System.gc();
+            result.heapMiB = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+            return result;
+        } finally {
+            pool.shutdownNow();
+            engines.forEach(MonitorEngine::stop);
+            jobFetcher.shutdown();
+            emitter.close();
+            if (sim != null) {
+                sim.stop();
+            }
+            deleteRecursively(stateDir);
+        }
+    }
+
+    private static void pollRound(List<MonitorEngine> engines, ExecutorService pool, List<Long> latencies) throws Exception {
+        List<Future<Long>> cycles = new ArrayList<>(engines.size());
+        for (MonitorEngine engine : engines) {
+            cycles.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                engine.pollCycle();
+                return System.nanoTime() - start;
+            }));
+        }
+        for (Future<Long> cycle : cycles) {
+            latencies.add(cycle.get());
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static final class CountingSink implements EventSink {
+
+        final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void write(WorkflowEvent event) {
+            count.incrementAndGet();
+        }
+    }
+
+    private static final class Result {
+        int trackedRuns;
+        int polls;
+        double p50Millis;
+        double p95Millis;
+        double maxMillis;
+        double cores;
+        double heapMiB;
+        double eventsPerSecond;
+        long requests;
+        double notModifiedPercent;
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.bench;
+
+import org.example.github.model.Job;
+import org.example.github.model.JobsResponse;
+import org.example.github.model.Step;
+import org.example.state.JournaledStateStore;
+import org.example.state.MonitorState;
+import org.example.state.StateStore;
+import org.example.state.snapshot.JobSnapshot;
+import org.example.state.snapshot.RunSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisting a state with {@code snapshots} tracked runs of 20 recorded jobs each:
+ * {@code save} rewrites the whole state file, {@code load} reads it back, and
+ * {@code journalAppend} changes one run and appends it to a {@link JournaledStateStore},
+ * including its periodic compaction. Results depend heavily on the disk under
+ * {@code java.io.tmpdir}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateStoreBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int snapshots;
+
+    private Path dir;
+    private MonitorState state;
+    private StateStore fileStore;
+    private JournaledStateStore journalStore;
+    private RunSnapshot earlier;
+    private RunSnapshot later;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<byte[]> states = Fixtures.jobsStates();
+        JobsResponse first = Fixtures.decodeJobs(Fixtures.sliceJobs(states.get(0), 20));
+        JobsResponse last = Fixtures.decodeJobs(Fixtures.sliceJobs(states.get(states.size() - 1), 20));
+
+        state = new MonitorState(0);
+        for (long runId = 1; runId <= snapshots; runId++) {
+            state.updateSnapshot(runId, snapshotOf(runId, runId % 2 == 0 ? first : last));
+            state.trackRun(runId);
+        }
+        state.drainChanges();
+        earlier = snapshotOf(1, first);
+        later = snapshotOf(1, last);
+
+        dir = Files.createTempDirectory("ghawatch-state");
+        fileStore = new StateStore(dir.resolve("state.json").toString());
+        fileStore.save(state);
+        journalStore = new JournaledStateStore(dir.resolve("journal").resolve("state.json").toString(), 1000, 1000);
+        journalStore.save(state);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journalStore.close();
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void save() {
+        fileStore.save(state);
+    }
+
+    @Benchmark
+    public MonitorState load() {
+        return fileStore.load();
+    }
+
+    @Benchmark
+    public void journalAppend() {
+        state.updateSnapshot(1, (next++ & 1) == 0 ? later : earlier);
+        journalStore.save(state);
+    }
+
+    private static RunSnapshot snapshotOf(long runId, JobsResponse response) {
+        Map<Long, JobSnapshot> jobs = new HashMap<>();
+        for (Job job : response.getJobs()) {
+            List<Step> steps = job.getSteps();
+            JobSnapshot.Builder builder = new JobSnapshot.Builder(job.getId(), job.getStatus(), job.getConclusion(), steps.size());
+            for (Step step : steps) {
+                builder.step(step.getNumber(), step.getStatus(), step.getConclusion());
+            }
+            jobs.put(job.getId(), builder.build());
+        }
+        return new RunSnapshot(runId, "in_progress", null, jobs);
+    }
+}
@@ -0,0 +1,587 @@
+package org.example.bench.sim;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Local stand-in for the GitHub Actions endpoints {@code GitHubClient} calls: the run listing,
+ * a single run and the jobs of a run, under {@code /repos/sim/repo-<n>/actions/runs}.
+ * <p>
+ * Nothing is stored per run. Run {@code k} of repository {@code r} arrives at a fixed time and
+ * gets id {@code k * repos + r + 1}, so ids grow with arrival as on GitHub; its jobs and steps
+ * are drawn from a random generator seeded with the run id, and every status is derived from
+ * the current time. The simulation starts two mean run durations in the past, so the first
+ * listing already shows runs in every phase.
+ * <p>
+ * Responses carry ETags and answer a matching {@code If-None-Match} with a 304, which does not
+ * count against the simulated {@code X-RateLimit-*} window of one hour per token. An exhausted
+ * window is answered with a 403 like GitHub's primary rate limit.
+ * <p>
+ * Run standalone to keep the simulator's CPU out of the monitor's measurements:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.example.bench.sim.SimulatedGitHub --port 8089 --repos 100
+ * </pre>
+ */
+public class SimulatedGitHub {
+
+    public static final String OWNER = "sim";
+
+    /** Root used in the URLs inside payloads, as GitHub would write them. */
+    private static final String API_ROOT = "https://api.github.com";
+
+    private static final String[] STEP_NAMES = {"Set up job", "Checkout", "Set up toolchain", "Restore cache",
+            "Build", "Test", "Upload artifacts", "Post checkout", "Complete job"};
+
+    private final SimulationConfig config;
+    private final long epochMillis;
+    private final long intervalMillis;
+    private final JsonFactory json = new JsonFactory();
+    private final HttpServer server;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    /** Arrival, first job start, end and failure flag of runs listed so far, by run id. */
+    private final Map<Long, long[]> summaries = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> usedByToken = new ConcurrentHashMap<>();
+    private volatile long windowResetMillis;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    public SimulatedGitHub(SimulationConfig config, InetSocketAddress address, int threads) throws IOException {
+        this.config = config;
+        this.intervalMillis = Math.max(1, (long) (60_000 / config.runsPerMinute));
+        this.epochMillis = System.currentTimeMillis() - 2 * config.meanRunMillis();
+        this.windowResetMillis = System.currentTimeMillis() + 3_600_000;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "sim-http-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            workers.add(t);
+            return t;
+        });
+
+        this.server = HttpServer.create(address, 1024);
+        this.server.createContext("/repos/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public static String repoName(int index) {
+        return "repo-" + index;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    /**
+     * CPU time used so far by the threads serving requests, so a caller sharing the process can
+     * subtract it from its own measurements.
+     */
+    public long cpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread t : workers) {
+            long cpu = threads.getThreadCpuTime(t.getId());
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, message("Method not allowed"), null);
+                return;
+            }
+
+            if (!takeQuota(exchange)) {
+                send(exchange, 403, message("API rate limit exceeded"), null);
+                return;
+            }
+
+            byte[] body = route(exchange.getRequestURI());
+            if (body == null) {
+                send(exchange, 404, message("Not Found"), null);
+                return;
+            }
+
+            String etag = etag(body);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                refundQuota(exchange);
+                send(exchange, 304, null, etag);
+                return;
+            }
+            send(exchange, 200, body, etag);
+        } catch (RuntimeException e) {
+            send(exchange, 500, message(String.valueOf(e.getMessage())), null);
+        }
+    }
+
+    /**
+     * Paths look like {@code /repos/sim/repo-3/actions/runs[/<id>[/jobs]]}.
+     */
+    private byte[] route(URI uri) throws IOException {
+        String[] parts = uri.getPath().split("/");
+        if (parts.length < 6 || !OWNER.equals(parts[2]) || !parts[3].startsWith("repo-")
+                || !"actions".equals(parts[4]) || !"runs".equals(parts[5])) {
+            return null;
+        }
+
+        int repo;
+        try {
+            repo = Integer.parseInt(parts[3].substring("repo-".length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (repo < 0 || repo >= config.repos) {
+            return null;
+        }
+
+        Map<String, String> query = query(uri.getRawQuery());
+        int perPage = Math.min(100, Integer.parseInt(query.getOrDefault("per_page", "30")));
+        int page = Math.max(1, Integer.parseInt(query.getOrDefault("page", "1")));
+        long now = System.currentTimeMillis();
+
+        if (parts.length == 6) {
+            String created = query.get("created");
+            long createdSince = created == null ? Long.MIN_VALUE : parseCreatedFilter(created);
+            return listRuns(repo, perPage, page, createdSince, now);
+        }
+
+        long runId;
+        try {
+            runId = Long.parseLong(parts[6]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (runId < 1 || (runId - 1) % config.repos != repo || arrival(runId) > now) {
+            return null;
+        }
+
+        if (parts.length == 7) {
+            return render(g -> writeRun(g, runId, now));
+        }
+        if (parts.length == 8 && "jobs".equals(parts[7])) {
+            return listJobs(runId, perPage, page, now);
+        }
+        return null;
+    }
+
+    /**
+     * Runs newest first; with a {@code created>=} filter only those that arrived since then.
+     */
+    private byte[] listRuns(int repo, int perPage, int page, long createdSince, long now) throws IOException {
+        long offset = epochMillis + repo * intervalMillis / config.repos;
+        long latest = Math.floorDiv(now - offset, intervalMillis);
+        long oldest = createdSince <= offset ? 0 : Math.floorDiv(createdSince - offset + intervalMillis - 1, intervalMillis);
+        long total = Math.max(0, latest - oldest + 1);
+
+        return render(g -> {
+            g.writeStartObject();
+            g.writeNumberField("total_count", total);
+            g.writeArrayFieldStart("workflow_runs");
+            long from = latest - (long) (page - 1) * perPage;
+            for (long k = from; k > from - perPage && k >= oldest; k--) {
+                writeRun(g, k * config.repos + repo + 1, now);
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        });
+    }
+
+    private byte[] listJobs(long runId, int perPage, int page, long now) throws IOException {
+        RunPlan plan = plan(runId);
+        return render(g -> {
+            g.writeStartObject();
+            g.writeNumberField("total_count", config.matrixWidth);
+            g.writeArrayFieldStart("jobs");
+            int from = (page - 1) * perPage;
+            for (int j = from; j < Math.min(config.matrixWidth, from + perPage); j++) {
+                writeJob(g, runId, plan, j, now);
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        });
+    }
+
+    private void writeRun(JsonGenerator g, long runId, long now) throws IOException {
+        long[] summary = summary(runId);
+        long arrival = summary[0];
+        long firstStart = summary[1];
+        long end = summary[2];
+
+        String repoUrl = API_ROOT + "/repos/" + OWNER + "/" + repoName((int) ((runId - 1) % config.repos));
+
+        g.writeStartObject();
+        g.writeNumberField("id", runId);
+        g.writeStringField("name", "matrix");
+        g.writeStringField("node_id", "WFR_" + Long.toString(runId, 36));
+        g.writeStringField("display_title", "Simulated change " + runId);
+        g.writeNumberField("workflow_id", 1000 + runId % 7);
+        g.writeStringField("path", ".github/workflows/matrix.yml");
+        g.writeStringField("event", "push");
+        g.writeStringField("head_branch", branch(runId));
+        g.writeStringField("head_sha", sha(runId));
+        g.writeNumberField("run_number", (runId - 1) / config.repos + 1);
+        g.writeNumberField("run_attempt", 1);
+        if (now < firstStart) {
+            g.writeStringField("status", "queued");
+            g.writeNullField("conclusion");
+        } else if (now < end) {
+            g.writeStringField("status", "in_progress");
+            g.writeNullField("conclusion");
+        } else {
+            g.writeStringField("status", "completed");
+            g.writeStringField("conclusion", summary[3] == 1 ? "failure" : "success");
+        }
+        g.writeStringField("created_at", time(arrival));
+        g.writeStringField("run_started_at", time(arrival));
+        g.writeStringField("updated_at", time(now < firstStart ? arrival : Math.min(now, end)));
+        g.writeStringField("url", repoUrl + "/actions/runs/" + runId);
+        g.writeStringField("jobs_url", repoUrl + "/actions/runs/" + runId + "/jobs");
+        g.writeStringField("html_url", "https://github.com/" + OWNER + "/" + repoName((int) ((runId - 1) % config.repos))
+                + "/actions/runs/" + runId);
+        g.writeEndObject();
+    }
+
+    private void writeJob(JsonGenerator g, long runId, RunPlan plan, int j, long now) throws IOException {
+        long start = plan.jobStart[j];
+        long end = plan.stepEnd[j][config.stepsPerJob - 1];
+
+        long jobId = runId * 1000 + j;
+        String repoUrl = API_ROOT + "/repos/" + OWNER + "/" + repoName((int) ((runId - 1) % config.repos));
+
+        g.writeStartObject();
+        g.writeNumberField("id", jobId);
+        g.writeNumberField("run_id", runId);
+        g.writeStringField("workflow_name", "matrix");
+        g.writeStringField("node_id", "CR_" + Long.toString(jobId, 36));
+        g.writeStringField("url", repoUrl + "/actions/jobs/" + jobId);
+        g.writeStringField("run_url", repoUrl + "/actions/runs/" + runId);
+        g.writeStringField("check_run_url", repoUrl + "/check-runs/" + jobId);
+        g.writeNumberField("run_attempt", 1);
+        g.writeStringField("name", "build (shard " + (j + 1) + "/" + config.matrixWidth + ")");
+        g.writeStringField("head_branch", branch(runId));
+        g.writeStringField("head_sha", sha(runId));
+        g.writeStringField("status", now < start ? "queued" : now < end ? "in_progress" : "completed");
+        if (now < end) {
+            g.writeNullField("conclusion");
+        } else {
+            g.writeStringField("conclusion", plan.failedStep[j] >= 0 ? "failure" : "success");
+        }
+        g.writeStringField("created_at", time(plan.arrival));
+        writeTime(g, "started_at", now >= start ? start : -1);
+        writeTime(g, "completed_at", now >= end ? end : -1);
+        g.writeStringField("runner_name", now >= start ? "sim-runner-" + (j % 64) : null);
+        if (now >= start) {
+            g.writeNumberField("runner_id", j % 64 + 1);
+            g.writeNumberField("runner_group_id", 1);
+            g.writeStringField("runner_group_name", "GitHub Actions");
+        }
+        g.writeArrayFieldStart("labels");
+        g.writeString("ubuntu-latest");
+        g.writeEndArray();
+
+        g.writeArrayFieldStart("steps");
+        long stepStart = start;
+        for (int s = 0; s < config.stepsPerJob; s++) {
+            long stepEnd = plan.stepEnd[j][s];
+            boolean skipped = plan.failedStep[j] >= 0 && s > plan.failedStep[j];
+
+            g.writeStartObject();
+            g.writeStringField("name", STEP_NAMES[s % STEP_NAMES.length]);
+            g.writeNumberField("number", s + 1);
+            if (now < stepStart) {
+                g.writeStringField("status", "queued");
+                g.writeNullField("conclusion");
+            } else if (now < stepEnd) {
+                g.writeStringField("status", "in_progress");
+                g.writeNullField("conclusion");
+            } else {
+                g.writeStringField("status", "completed");
+                g.writeStringField("conclusion", skipped ? "skipped" : s == plan.failedStep[j] ? "failure" : "success");
+            }
+            writeTime(g, "started_at", now >= stepStart ? stepStart : -1);
+            writeTime(g, "completed_at", now >= stepEnd ? stepEnd : -1);
+            g.writeEndObject();
+            stepStart = stepEnd;
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    private long arrival(long runId) {
+        long k = (runId - 1) / config.repos;
+        long repo = (runId - 1) % config.repos;
+        return epochMillis + k * intervalMillis + repo * intervalMillis / config.repos;
+    }
+
+    /**
+     * Run-level timings, cached because every listing needs them for up to a hundred runs.
+     * Entries for runs that ended long ago are dropped once the cache grows.
+     */
+    private long[] summary(long runId) {
+        long[] summary = summaries.get(runId);
+        if (summary != null) {
+            return summary;
+        }
+
+        RunPlan plan = plan(runId);
+        long firstStart = Long.MAX_VALUE;
+        long end = 0;
+        boolean failed = false;
+        for (int j = 0; j < config.matrixWidth; j++) {
+            firstStart = Math.min(firstStart, plan.jobStart[j]);
+            end = Math.max(end, plan.stepEnd[j][config.stepsPerJob - 1]);
+            failed |= plan.failedStep[j] >= 0;
+        }
+        summary = new long[]{plan.arrival, firstStart, end, failed ? 1 : 0};
+
+        if (summaries.size() > 100_000) {
+            long cutoff = System.currentTimeMillis() - 4 * config.meanRunMillis();
+            summaries.values().removeIf(s -> s[2] < cutoff);
+        }
+        summaries.put(runId, summary);
+        return summary;
+    }
+
+    private RunPlan plan(long runId) {
+        SplittableRandom random = new SplittableRandom(config.seed * 31 + runId);
+        long stepMillis = (long) (config.stepSeconds * 1000);
+        long queueMillis = (long) (config.queueSeconds * 1000);
+
+        RunPlan plan = new RunPlan(config.matrixWidth, config.stepsPerJob);
+        plan.arrival = arrival(runId);
+        long queued = plan.arrival + jitter(random, queueMillis);
+        for (int j = 0; j < config.matrixWidth; j++) {
+            plan.jobStart[j] = queued + random.nextLong(1000);
+            plan.failedStep[j] = random.nextDouble() < config.failureRatio ? random.nextInt(config.stepsPerJob) : -1;
+
+            long t = plan.jobStart[j];
+            for (int s = 0; s < config.stepsPerJob; s++) {
+                boolean skipped = plan.failedStep[j] >= 0 && s > plan.failedStep[j];
+                t += skipped ? 0 : jitter(random, stepMillis);
+                plan.stepEnd[j][s] = t;
+            }
+        }
+        return plan;
+    }
+
+    private static long jitter(SplittableRandom random, long mean) {
+        return mean <= 0 ? 0 : mean / 2 + random.nextLong(mean + 1);
+    }
+
+    private boolean takeQuota(HttpExchange exchange) {
+        long now = System.currentTimeMillis();
+        if (now >= windowResetMillis) {
+            synchronized (this) {
+                if (now >= windowResetMillis) {
+                    usedByToken.clear();
+                    windowResetMillis = now + 3_600_000;
+                }
+            }
+        }
+
+        String token = String.valueOf(exchange.getRequestHeaders().getFirst("Authorization"));
+        int used = usedByToken.computeIfAbsent(token, t -> new AtomicInteger()).incrementAndGet();
+        int remaining = Math.max(0, config.rateLimit - used);
+
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(config.rateLimit));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(remaining));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", Long.toString(windowResetMillis / 1000));
+        exchange.getResponseHeaders().set("X-RateLimit-Used", Integer.toString(Math.min(used, config.rateLimit)));
+        return used <= config.rateLimit;
+    }
+
+    private void refundQuota(HttpExchange exchange) {
+        String token = String.valueOf(exchange.getRequestHeaders().getFirst("Authorization"));
+        int used = usedByToken.get(token).decrementAndGet();
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(Math.max(0, config.rateLimit - used)));
+        exchange.getResponseHeaders().set("X-RateLimit-Used", Integer.toString(Math.min(used, config.rateLimit)));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, String etag) throws IOException {
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] render(JsonBody body) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(4096);
+        try (JsonGenerator g = json.createGenerator(buf, JsonEncoding.UTF8)) {
+            body.write(g);
+        }
+        return buf.toByteArray();
+    }
+
+    private byte[] message(String message) {
+        try {
+            return render(g -> {
+                g.writeStartObject();
+                g.writeStringField("message", message);
+                g.writeEndObject();
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String etag(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return "W/\"" + Long.toHexString(crc.getValue()) + body.length + "\"";
+    }
+
+    private static String branch(long runId) {
+        return runId % 5 == 0 ? "feature/" + (runId % 97) : "main";
+    }
+
+    private static String sha(long runId) {
+        String hex = Long.toHexString(runId * 0x9E3779B97F4A7C15L);
+        return (hex + hex + hex + "0000000000000000000000000000000000000000").substring(0, 40);
+    }
+
+    private static String time(long millis) {
+        return Instant.ofEpochMilli(millis).toString();
+    }
+
+    private static void writeTime(JsonGenerator g, String field, long millis) throws IOException {
+        if (millis < 0) {
+            g.writeNullField(field);
+        } else {
+            g.writeStringField(field, time(millis));
+        }
+    }
+
+    /**
+     * GitHub's {@code created} search qualifier; only the {@code >=} form is supported.
+     */
+    private static long parseCreatedFilter(String value) {
+        if (!value.startsWith(">=")) {
+            throw new IllegalArgumentException("Unsupported created filter: " + value);
+        }
+        return Instant.parse(value.substring(2)).toEpochMilli();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Parses {@code --name value} pairs; names are returned without the dashes.
+     */
+    public static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> parsed = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            parsed.put(args[i].substring(2), args[++i]);
+        }
+        return parsed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        SimulationConfig config = SimulationConfig.fromArgs(options, Integer.parseInt(options.getOrDefault("repos", "10")));
+        SimulatedGitHub sim = new SimulatedGitHub(config,
+                new InetSocketAddress(options.getOrDefault("bind", "127.0.0.1"), Integer.parseInt(options.getOrDefault("port", "8089"))),
+                Integer.parseInt(options.getOrDefault("threads", "16")));
+        sim.start();
+
+        System.out.println("Simulating " + config + " at " + sim.getBaseUrl());
+        System.out.println("About " + config.expectedConcurrentRuns() + " runs in progress at any time; repositories "
+                + OWNER + "/" + repoName(0) + " .. " + OWNER + "/" + repoName(config.repos - 1));
+        Thread.currentThread().join();
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonGenerator g) throws IOException;
+    }
+
+    private static final class RunPlan {
+
+        long arrival;
+        final long[] jobStart;
+        final int[] failedStep;
+        final long[][] stepEnd;
+
+        RunPlan(int jobs, int steps) {
+            this.jobStart = new long[jobs];
+            this.failedStep = new int[jobs];
+            this.stepEnd = new long[jobs][steps];
+        }
+    }
+}
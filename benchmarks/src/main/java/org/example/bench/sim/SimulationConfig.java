@@ -0,0 +1,81 @@
+package org.example.bench.sim;
+
+import java.util.Map;
+
+/**
+ * Shape of the load {@link SimulatedGitHub} generates. Every repository receives runs at the
+ * same steady rate; each run is a matrix of {@code matrixWidth} parallel jobs with
+ * {@code stepsPerJob} sequential steps. Durations are jittered between half and one and a
+ * half times their mean, deterministically per run from {@code seed}.
+ */
+public class SimulationConfig {
+
+    final int repos;
+    final double runsPerMinute;
+    final int matrixWidth;
+    final int stepsPerJob;
+    final double stepSeconds;
+    final double queueSeconds;
+    final double failureRatio;
+    final int rateLimit;
+    final long seed;
+
+    public SimulationConfig(int repos, double runsPerMinute, int matrixWidth, int stepsPerJob,
+                            double stepSeconds, double queueSeconds, double failureRatio,
+                            int rateLimit, long seed) {
+        if (repos < 1 || runsPerMinute <= 0 || matrixWidth < 1 || stepsPerJob < 1) {
+            throw new IllegalArgumentException("repos, runs per minute, matrix width and steps must be positive");
+        }
+        this.repos = repos;
+        this.runsPerMinute = runsPerMinute;
+        this.matrixWidth = matrixWidth;
+        this.stepsPerJob = stepsPerJob;
+        this.stepSeconds = stepSeconds;
+        this.queueSeconds = queueSeconds;
+        this.failureRatio = failureRatio;
+        this.rateLimit = rateLimit;
+        this.seed = seed;
+    }
+
+    /**
+     * Reads {@code --repos}, {@code --runs-per-minute}, {@code --matrix}, {@code --steps},
+     * {@code --step-seconds}, {@code --queue-seconds}, {@code --failure-ratio},
+     * {@code --rate-limit} and {@code --seed}, falling back to defaults for missing ones.
+     */
+    public static SimulationConfig fromArgs(Map<String, String> args, int repos) {
+        return new SimulationConfig(
+                repos,
+                Double.parseDouble(args.getOrDefault("runs-per-minute", "6")),
+                Integer.parseInt(args.getOrDefault("matrix", "20")),
+                Integer.parseInt(args.getOrDefault("steps", "8")),
+                Double.parseDouble(args.getOrDefault("step-seconds", "15")),
+                Double.parseDouble(args.getOrDefault("queue-seconds", "10")),
+                Double.parseDouble(args.getOrDefault("failure-ratio", "0.05")),
+                Integer.parseInt(args.getOrDefault("rate-limit", "1000000")),
+                Long.parseLong(args.getOrDefault("seed", "42")));
+    }
+
+    public int getRepos() {
+        return repos;
+    }
+
+    /**
+     * Mean wall time of one run: queueing plus every step of a job, since jobs run in parallel.
+     */
+    public long meanRunMillis() {
+        return (long) ((queueSeconds + stepsPerJob * stepSeconds) * 1000);
+    }
+
+    /**
+     * Runs in progress across all repositories once the simulation is in its steady state.
+     */
+    public long expectedConcurrentRuns() {
+        return Math.round(repos * runsPerMinute * meanRunMillis() / 60_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return repos + " repos x " + runsPerMinute + " runs/min, " + matrixWidth + " jobs x " + stepsPerJob
+                + " steps of ~" + stepSeconds + "s, " + (int) (failureRatio * 100) + "% failing";
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.monitor;
+
+import org.example.bench.Fixtures;
+import org.example.event.EventEmitter;
+import org.example.event.WorkflowEvent;
+import org.example.event.sink.EventSink;
+import org.example.github.model.JobsResponse;
+import org.example.github.model.WorkflowRun;
+import org.example.state.MonitorState;
+import org.example.state.StateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of diffing one run against its snapshot with
+ * {@link MonitorEngine#processRunWithSnapshot}, over the recorded matrix run cut to
+ * {@code jobs} jobs of ten steps. Lives in the engine's package to reach that method.
+ * <ul>
+ *     <li>{@code unchanged}: the jobs match the snapshot, the fast path of most polls</li>
+ *     <li>{@code progressed}: alternates between two recorded moments, so every call diffs
+ *     the changed jobs and emits their events</li>
+ *     <li>{@code firstSeen}: a run without a snapshot, so every job and step is new</li>
+ * </ul>
+ * Events go to a sink that discards them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiffBenchmark {
+
+    @Param({"1", "20", "100"})
+    private int jobs;
+
+    private MonitorEngine engine;
+    private WorkflowRun run;
+    private List<JobsResponse> earlier;
+    private List<JobsResponse> later;
+    private MonitorState unchangedState;
+    private MonitorState progressedState;
+    private boolean atLater;
+
+    @Setup
+    public void setup() throws IOException {
+        EventSink discard = new EventSink() {
+            @Override
+            public void write(WorkflowEvent event) {
+            }
+        };
+        String stateFile = Files.createTempDirectory("ghawatch-diff").resolve("state.json").toString();
+        engine = new MonitorEngine(null, new StateStore(stateFile), new EventEmitter(List.of(discard)),
+                "octo", "matrix", 1000);
+
+        run = Fixtures.matrixRun();
+        List<byte[]> states = Fixtures.jobsStates();
+        earlier = List.of(Fixtures.decodeJobs(Fixtures.sliceJobs(states.get(0), jobs)));
+        later = List.of(Fixtures.decodeJobs(Fixtures.sliceJobs(states.get(states.size() - 1), jobs)));
+
+        unchangedState = new MonitorState(0);
+        engine.processRunWithSnapshot(run, later, unchangedState);
+
+        progressedState = new MonitorState(0);
+        engine.processRunWithSnapshot(run, earlier, progressedState);
+    }
+
+    @Benchmark
+    public PollTier unchanged() throws IOException {
+        return engine.processRunWithSnapshot(run, later, unchangedState);
+    }
+
+    @Benchmark
+    public PollTier progressed() throws IOException {
+        atLater = !atLater;
+        PollTier tier = engine.processRunWithSnapshot(run, atLater ? later : earlier, progressedState);
+        progressedState.drainChanges();
+        return tier;
+    }
+
+    @Benchmark
+    public PollTier firstSeen() throws IOException {
+        return engine.processRunWithSnapshot(run, later, new MonitorState(0));
+    }
+}
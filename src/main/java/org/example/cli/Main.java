@@ -1,43 +1,158 @@
 package org.example.cli;
 
+import okhttp3.Interceptor;
+import org.example.event.AsyncEventEmitter;
 import org.example.event.EventEmitter;
+import org.example.event.sink.ConsoleSink;
+import org.example.event.sink.EventSink;
+import org.example.event.sink.HistorySink;
+import org.example.event.sink.NdjsonFileSink;
+import org.example.event.sink.UnixSocketSink;
+import org.example.event.sink.WebhookSink;
+import org.example.github.AppInstallationCredential;
+import org.example.github.Credential;
 import org.example.github.GitHubClient;
+import org.example.github.TokenPool;
+import org.example.github.traffic.TrafficRecorder;
+import org.example.github.traffic.TrafficReplayer;
+import org.example.metrics.MetricsServer;
+import org.example.monitor.JobFetcher;
 import org.example.monitor.MonitorEngine;
+import org.example.monitor.MonitorScheduler;
+import org.example.monitor.PollBudget;
+import org.example.monitor.PollTiers;
+import org.example.monitor.SnapshotRetention;
+import org.example.state.CompletedRunCache;
+import org.example.state.JournaledStateStore;
 import org.example.state.MonitorState;
 import org.example.state.StateStore;
+import org.example.webhook.WebhookReceiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @CommandLine.Command(
         name = "gha-watch",
         version = "GHAWatch 1.0.0",
-        description = "Monitor GithubActions workflow runs and print one-line events to stdout."
+        description = "Monitor GithubActions workflow runs of one or more repositories and print one-line events to stdout.",
+        subcommands = {RunInfoCommand.class, QueryCommand.class}
 )
 public class Main implements Callable<Integer> {
 
     private static final Logger log = LoggerFactory.getLogger(Main.class);
 
-    @CommandLine.Parameters(index = "0", paramLabel = "<owner/repo>",
-            description = "Repository in the form owner/repo")
-    private String repoArg;
+    @CommandLine.Parameters(arity = "0..*", paramLabel = "<owner/repo>",
+            description = "One or more repositories in the form owner/repo")
+    private List<String> repoArgs = new ArrayList<>();
 
-    @CommandLine.Option(names = {"--token"}, description = "Github personal access token (overrides GITHUB_TOKEN env)")
-    private String tokenOpt;
+    @CommandLine.Option(names = {"--repos-file"}, description = "File with one owner/repo per line; blank lines and # comments are ignored")
+    private Path reposFileOpt;
+
+    @CommandLine.Option(names = {"--token"}, description = "Github personal access token (overrides GITHUB_TOKEN env); repeatable to spread requests over several tokens")
+    private List<String> tokenOpts = new ArrayList<>();
+    @CommandLine.Option(names = {"--tokens-file"}, description = "File with one token per line, added to the token pool")
+    private Path tokensFileOpt;
+    @CommandLine.Option(names = {"--app-id"}, description = "GitHub App id; authenticates as the installations given with --app-installation")
+    private Long appIdOpt;
+    @CommandLine.Option(names = {"--app-key"}, description = "PEM private key file of the GitHub App")
+    private Path appKeyOpt;
+    @CommandLine.Option(names = {"--app-installation"}, paramLabel = "<id>", description = "Installation id of the GitHub App; repeatable")
+    private List<Long> appInstallations = new ArrayList<>();
 
     @CommandLine.Option(names = {"--state"}, description = "Path to the state file (default: ~/.gha-watch/<owner>/<repo>/state.json)")
     private String stateFileOpt;
-    @CommandLine.Option(names = {"--interval"}, description = "Polling interval in seconds (default: ${DEFAULT-VALUE})", defaultValue = "10")
+    @CommandLine.Option(names = {"--state-dir"}, description = "Base directory for per-repository state files (default: ~/.gha-watch)")
+    private String stateDirOpt;
+    @CommandLine.Option(names = {"--sink"}, paramLabel = "<sink>",
+            description = "Where to send events; repeatable. One of: console, ndjson:<file>, unix:<socket path>, webhook:<url>, history[:<dir>] for gha-watch query, by default in a directory of its own for these repositories below <state-dir>/history (default: console)")
+    private List<String> sinkSpecs = new ArrayList<>();
+    @CommandLine.Option(names = {"--ndjson-max-mb"}, description = "Rotate NDJSON event files at this size in MiB, 0 to disable (default: ${DEFAULT-VALUE})", defaultValue = "100")
+    private long ndjsonMaxMb;
+    @CommandLine.Option(names = {"--ndjson-rotate-minutes"}, description = "Rotate NDJSON event files after this many minutes, 0 to disable (default: ${DEFAULT-VALUE})", defaultValue = "0")
+    private long ndjsonRotateMinutes;
+    @CommandLine.Option(names = {"--history-segment-mb"}, description = "Size in MiB at which the event history starts a new indexed segment (default: ${DEFAULT-VALUE})", defaultValue = "64")
+    private long historySegmentMb;
+    @CommandLine.Option(names = {"--history-retention-days"}, description = "Delete event history segments last written more than this many days ago, 0 to keep them (default: ${DEFAULT-VALUE})", defaultValue = "0")
+    private long historyRetentionDays;
+    @CommandLine.Option(names = {"--history-max-mb"}, description = "Delete the oldest event history segments while the history is larger than this many MiB, 0 for no limit (default: ${DEFAULT-VALUE})", defaultValue = "0")
+    private long historyMaxMb;
+    @CommandLine.Option(names = {"--webhook-batch"}, description = "Events per webhook POST (default: ${DEFAULT-VALUE})", defaultValue = "100")
+    private int webhookBatch;
+    @CommandLine.Option(names = {"--webhook-flush-ms"}, description = "Maximum time events wait before a webhook POST (default: ${DEFAULT-VALUE})", defaultValue = "2000")
+    private long webhookFlushMillis;
+    @CommandLine.Option(names = {"--webhook-retries"}, description = "Retries for a failed webhook POST (default: ${DEFAULT-VALUE})", defaultValue = "3")
+    private int webhookRetries;
+    @CommandLine.Option(names = {"--async-events"}, description = "Write events from a background thread so polling never waits on stdout")
+    private boolean asyncEvents;
+    @CommandLine.Option(names = {"--event-queue"}, description = "Capacity of the async event queue (default: ${DEFAULT-VALUE})", defaultValue = "8192")
+    private int eventQueueCapacity;
+    @CommandLine.Option(names = {"--event-overflow"}, description = "What to do when the async event queue is full: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})", defaultValue = "BLOCK")
+    private AsyncEventEmitter.OverflowPolicy eventOverflow;
+    @CommandLine.Option(names = {"--state-journal"}, description = "Append state changes to a journal next to the state file and compact it periodically, instead of rewriting the state file on every save")
+    private boolean stateJournal;
+    @CommandLine.Option(names = {"--poll-threads"}, description = "Threads shared by all repositories for polling (default: ${DEFAULT-VALUE})", defaultValue = "4")
+    private int pollThreads;
+    @CommandLine.Option(names = {"--fetch-parallelism"}, description = "Maximum concurrent job requests across all repositories (default: ${DEFAULT-VALUE})", defaultValue = "8")
+    private int fetchParallelism;
+    @CommandLine.Option(names = {"--interval"}, description = "Polling interval in seconds for queued runs, and the starting interval for idle repositories (default: ${DEFAULT-VALUE})", defaultValue = "10")
 
     private int intervalSeconds;
+    @CommandLine.Option(names = {"--hot-interval"}, description = "Polling interval in seconds while a run is executing (default: ${DEFAULT-VALUE})", defaultValue = "3")
+    private int hotIntervalSeconds;
+    @CommandLine.Option(names = {"--idle-max-interval"}, description = "Longest polling interval in seconds for repositories without active runs (default: ${DEFAULT-VALUE})", defaultValue = "120")
+    private int idleMaxIntervalSeconds;
+    @CommandLine.Option(names = {"--snapshot-ttl-hours"}, description = "Stop tracking a run whose state has not changed for this many hours (default: ${DEFAULT-VALUE})", defaultValue = "24")
+    private long snapshotTtlHours;
+    @CommandLine.Option(names = {"--max-snapshots"}, description = "Most in-progress runs tracked per repository; the least recently changed are dropped first (default: ${DEFAULT-VALUE})", defaultValue = "1000")
+    private int maxSnapshots;
+    @CommandLine.Option(names = {"--receiver-port"}, description = "Receive workflow_run and workflow_job webhooks on this port at " + WebhookReceiver.PATH + " and poll only to reconcile; 0 disables (default: ${DEFAULT-VALUE})", defaultValue = "0")
+    private int receiverPort;
+    @CommandLine.Option(names = {"--receiver-bind"}, description = "Address the webhook receiver listens on, e.g. 0.0.0.0 to accept deliveries from other hosts (default: ${DEFAULT-VALUE})", defaultValue = "127.0.0.1")
+    private String receiverBind;
+    @CommandLine.Option(names = {"--receiver-secret"}, description = "Webhook secret used to verify X-Hub-Signature-256 (overrides GHAWATCH_WEBHOOK_SECRET env); required unless --receiver-insecure")
+    private String receiverSecretOpt;
+    @CommandLine.Option(names = {"--receiver-insecure"}, description = "Let the webhook receiver run without a secret and accept unsigned deliveries")
+    private boolean receiverInsecure;
+    @CommandLine.Option(names = {"--reconcile-interval"}, description = "Polling interval in seconds while receiving webhooks (default: ${DEFAULT-VALUE})", defaultValue = "300")
+    private int reconcileIntervalSeconds;
+    @CommandLine.Option(names = {"--show-lag"}, description = "End console lines with the detection lag: seconds from GitHub's timestamp of the change to the event")
+    private boolean showLag;
+    @CommandLine.Option(names = {"--metrics-port"}, description = "Serve Prometheus metrics at /metrics on this port; 0 disables (default: ${DEFAULT-VALUE})", defaultValue = "0")
+    private int metricsPort;
+    @CommandLine.Option(names = {"--metrics-bind"}, description = "Address the metrics endpoint listens on (default: ${DEFAULT-VALUE})", defaultValue = "127.0.0.1")
+    private String metricsBind;
+    @CommandLine.Option(names = {"--api-url"}, description = "GitHub API root, e.g. https://ghe.example.com/api/v3 for GitHub Enterprise Server (default: ${DEFAULT-VALUE})", defaultValue = GitHubClient.DEFAULT_BASE_URL)
+    private String apiUrl;
+    @CommandLine.Option(names = {"--record"}, paramLabel = "<file>", description = "Record every GitHub API response to this gzip archive for --replay")
+    private Path recordFile;
+    @CommandLine.Option(names = {"--replay"}, paramLabel = "<file>", description = "Answer GitHub API requests from an archive written by --record instead of the network")
+    private Path replayFile;
+    @CommandLine.Option(names = {"--replay-speed"}, description = "How many times faster than recorded to replay; 0 steps through the responses without waiting (default: ${DEFAULT-VALUE})", defaultValue = "1")
+    private double replaySpeed;
     @CommandLine.Option(names = {"--verbose"}, description = "Enable verbose (DEBUG) logging")
     private boolean verbose;
-    @CommandLine.Option(names = {"--since-seconds"}, description = "When first run: look back this many seconds to emit recent completion events (default: 0)", defaultValue = "0")
+    @CommandLine.Option(names = {"--since-seconds"}, description = "On the first run, report every run created in the last this many seconds instead of only the newest page of runs (default: 0)", defaultValue = "0")
     private long sinceSeconds;
+    @CommandLine.Option(names = {"--completed-cache-size"}, description = "Completed runs remembered per repository so they are never fetched again; 0 disables (default: ${DEFAULT-VALUE})", defaultValue = "50000")
+    private int completedCacheSize;
 
     public static void main(String[] args) {
 
@@ -54,53 +169,245 @@ public class Main implements Callable<Integer> {
         System.out.println("JETBRAINS");
         System.out.println("-----------------------------------------");
 
-        if (repoArg == null || !repoArg.contains("/")) {
+        List<RepositoryRef> repos;
+        try {
+            repos = resolveRepositories();
+        } catch (IOException e) {
+            System.err.println("Failed to read repositories file: " + e.getMessage());
+            return 2;
+        }
+
+        if (repos == null || repos.isEmpty()) {
             System.err.println("Repository must be specified in the form: owner/repo");
             return 2;
         }
 
-        String[] parts = repoArg.split("/", 2);
-        String owner = parts[0];
-        String repo = parts[1];
+        String receiverSecret = resolveReceiverSecret();
+        if (receiverPort > 0 && (receiverSecret == null || receiverSecret.isEmpty()) && !receiverInsecure) {
+            System.err.println("ERROR: --receiver-port needs a webhook secret (--receiver-secret or GHAWATCH_WEBHOOK_SECRET); "
+                    + "use --receiver-insecure to accept unsigned deliveries");
+            return 2;
+        }
 
-        if (owner.isEmpty() || repo.isEmpty()) {
-            System.err.println("Repository must be specified in the form: owner/repo");
+        if (repos.size() > 1 && stateFileOpt != null && !stateFileOpt.isBlank()) {
+            System.err.println("--state can only be used with a single repository; use --state-dir instead");
+            return 2;
+        }
+
+        if (recordFile != null && replayFile != null) {
+            System.err.println("--record and --replay cannot be used together");
             return 2;
         }
 
-        String token = resolveToken(tokenOpt);
-        if (token == null || token.isBlank()) {
+        List<Credential> credentials;
+        try {
+            credentials = resolveCredentials();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            return 3;
+        }
+        if (credentials.isEmpty() && replayFile != null) {
+            // Replayed responses need no authentication.
+            credentials.add(Credential.ofToken("replay", "replay"));
+        }
+        if (credentials.isEmpty()) {
             System.err.println("ERROR: GitHub token not provided. Use --token or set GITHUB_TOKEN environment variable.");
             return 3;
         }
+        if (credentials.size() > 1) {
+            log.info("Spreading requests over {} credentials", credentials.size());
+        }
 
-        Path statePath = resolveStateFilePath(stateFileOpt, owner, repo);
-        log.info("Using state file: {}", statePath.toAbsolutePath());
-
-        GitHubClient client = new GitHubClient(token);
-        StateStore store = new StateStore(statePath.toString());
-        MonitorState state = store.load();
+        List<Interceptor> interceptors = new ArrayList<>();
+        try {
+            if (recordFile != null) {
+                TrafficRecorder recorder = new TrafficRecorder(recordFile);
+                Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "record-close"));
+                interceptors.add(recorder);
+            }
+            if (replayFile != null) {
+                interceptors.add(new TrafficReplayer(replayFile, replaySpeed));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to open traffic archive: " + e.getMessage());
+            return 2;
+        }
 
-        if (sinceSeconds > 0 && state.getLastProcessedRunId() == 0) {
-            // We won't fetch by timestamp; this flag will be used in Phase 6 to decide lookback;
-            log.info("First run lookback requested: {} seconds — (will be applied if implemented)", sinceSeconds);
+        GitHubClient client = new GitHubClient(new TokenPool(credentials), apiUrl, interceptors);
+        JobFetcher jobFetcher = new JobFetcher(client, fetchParallelism);
+        PollBudget pollBudget = new PollBudget(client.getRateLimit(), repos.size());
+        // With webhooks as the primary input, polling only reconciles missed deliveries.
+        boolean receiving = receiverPort > 0;
+        long pollIntervalMillis = (receiving ? reconcileIntervalSeconds : intervalSeconds) * 1000L;
+        PollTiers pollTiers = receiving
+                ? null
+                : new PollTiers(hotIntervalSeconds * 1000L, intervalSeconds * 1000L, idleMaxIntervalSeconds * 1000L);
+        SnapshotRetention retention = new SnapshotRetention(snapshotTtlHours * 3_600_000L, maxSnapshots);
+        List<EventSink> sinks;
+        try {
+            sinks = createSinks(repos);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Invalid --sink: " + e.getMessage());
+            return 2;
         }
 
-        EventEmitter emitter = new EventEmitter();
-        MonitorEngine engine = new MonitorEngine(
-                client, store, emitter, owner, repo, intervalSeconds * 1000L
-        );
+        EventEmitter emitter = asyncEvents
+                ? new AsyncEventEmitter(sinks, eventQueueCapacity, eventOverflow)
+                : new EventEmitter(sinks);
+
+        List<MonitorEngine> engines = new ArrayList<>();
+        for (RepositoryRef ref : repos) {
+            engines.add(createEngine(client, jobFetcher, pollBudget, pollTiers, retention, emitter, ref, pollIntervalMillis));
+        }
 
+        WebhookReceiver receiver = null;
+        MetricsServer metricsServer = null;
         try {
-            engine.start();
+            if (metricsPort > 0) {
+                metricsServer = new MetricsServer(new InetSocketAddress(metricsBind, metricsPort));
+                metricsServer.start();
+            }
+
+            if (receiving) {
+                receiver = new WebhookReceiver(new InetSocketAddress(receiverBind, receiverPort),
+                        receiverSecret, receiverInsecure, engines);
+                receiver.start();
+            }
+
+            // On the shutdown path the receiver stops before the engines save their final state,
+            // so every applied delivery is persisted; sinks are closed only after that.
+            WebhookReceiver stopFirst = receiver;
+            Runnable beforeSave = () -> {
+                if (stopFirst != null) {
+                    stopFirst.stop();
+                }
+            };
+            Runnable afterStop = emitter::close;
+            if (engines.size() == 1) {
+                engines.get(0).start(beforeSave, afterStop);
+            } else {
+                new MonitorScheduler(engines, pollThreads, pollIntervalMillis).start(beforeSave, afterStop);
+            }
             return 0;
         } catch (Exception e) {
             log.error("Fatal error: {}", e.getMessage(), e);
             System.err.println("Fatal error: " + e.getMessage());
             return 1;
+        } finally {
+            if (receiver != null) {
+                receiver.stop();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            emitter.close();
         }
     }
 
+    private MonitorEngine createEngine(GitHubClient client, JobFetcher jobFetcher, PollBudget pollBudget,
+                                       PollTiers pollTiers, SnapshotRetention retention, EventEmitter emitter, RepositoryRef ref,
+                                       long pollIntervalMillis) {
+        Path statePath = resolveStateFilePath(stateFileOpt, stateDirOpt, ref.getOwner(), ref.getName());
+        log.info("Using state file for {}: {}", ref, statePath.toAbsolutePath());
+
+        StateStore store = stateJournal
+                ? new JournaledStateStore(statePath.toString())
+                : new StateStore(statePath.toString());
+        MonitorState state = store.load();
+
+        if (sinceSeconds > 0 && state.getLastProcessedRunId() == 0 && state.getCreatedWatermarkMillis() == 0) {
+            // The first poll lists every run created in the lookback window instead of only the newest page.
+            state.setCreatedWatermarkMillis(System.currentTimeMillis() - sinceSeconds * 1000);
+            store.save(state);
+            log.info("First run for {}: looking back {} seconds", ref, sinceSeconds);
+        }
+
+        CompletedRunCache completedRuns = null;
+        if (completedCacheSize > 0) {
+            try {
+                completedRuns = new CompletedRunCache(CompletedRunCache.pathFor(statePath), completedCacheSize);
+            } catch (IOException e) {
+                log.warn("Completed run cache for {} unavailable: {}", ref, e.getMessage());
+            }
+        }
+
+        return new MonitorEngine(
+                client, jobFetcher, pollBudget, pollTiers, retention, completedRuns, store, emitter,
+                ref.getOwner(), ref.getName(), pollIntervalMillis
+        );
+    }
+
+    private List<EventSink> createSinks(List<RepositoryRef> repos) throws IOException {
+        boolean includeRepo = repos.size() > 1;
+        if (sinkSpecs.isEmpty()) {
+            return List.of(new ConsoleSink(includeRepo, showLag));
+        }
+
+        List<EventSink> sinks = new ArrayList<>();
+        for (String spec : sinkSpecs) {
+            int colon = spec.indexOf(':');
+            String kind = colon < 0 ? spec : spec.substring(0, colon);
+            String target = colon < 0 ? "" : spec.substring(colon + 1);
+
+            switch (kind) {
+                case "console" -> sinks.add(new ConsoleSink(includeRepo, showLag));
+                case "ndjson" -> sinks.add(new NdjsonFileSink(requireTarget(spec, target),
+                        ndjsonMaxMb * 1024 * 1024, ndjsonRotateMinutes * 60_000));
+                case "unix" -> sinks.add(new UnixSocketSink(requireTarget(spec, target)));
+                case "history" -> {
+                    Path dir = resolveHistoryDir(target, stateDirOpt, repos);
+                    log.info("Writing event history to {}", dir);
+                    sinks.add(new HistorySink(dir, historySegmentMb * 1024 * 1024,
+                            historyRetentionDays * 86_400_000L, historyMaxMb * 1024 * 1024));
+                }
+                case "webhook" -> {
+                    if (target.isBlank()) {
+                        throw new IllegalArgumentException(spec + " (missing url)");
+                    }
+                    sinks.add(new WebhookSink(target, webhookBatch, webhookFlushMillis, webhookRetries));
+                }
+                default -> throw new IllegalArgumentException(spec);
+            }
+        }
+        return sinks;
+    }
+
+    private Path requireTarget(String spec, String target) {
+        if (target.isBlank()) {
+            throw new IllegalArgumentException(spec + " (missing path)");
+        }
+        return Paths.get(target);
+    }
+
+    /**
+     * Collects repositories from the positional arguments and the optional repos file,
+     * dropping duplicates. Returns {@code null} if any entry is not of the form owner/repo.
+     */
+    private List<RepositoryRef> resolveRepositories() throws IOException {
+        List<String> specs = new ArrayList<>(repoArgs);
+
+        if (reposFileOpt != null) {
+            for (String line : Files.readAllLines(reposFileOpt)) {
+                String trimmed = line.strip();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    specs.add(trimmed);
+                }
+            }
+        }
+
+        Map<String, RepositoryRef> repos = new LinkedHashMap<>();
+        for (String spec : specs) {
+            RepositoryRef ref = RepositoryRef.parse(spec);
+            if (ref == null) {
+                System.err.println("Invalid repository: " + spec);
+                return null;
+            }
+            repos.putIfAbsent(ref.toString(), ref);
+        }
+
+        return new ArrayList<>(repos.values());
+    }
+
     private void configureLogging(boolean verbose) {
         if (verbose) {
             System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "debug");
@@ -113,8 +420,48 @@ public class Main implements Callable<Integer> {
         System.setProperty("org.slf4j.simpleLogger.dateTimeFormat", "yyyy-MM-dd'T'HH:mm:ss");
     }
 
-    private String resolveToken(String tokenOpt) {
-        if (tokenOpt != null && !tokenOpt.isBlank()) return tokenOpt;
+    /**
+     * Collects the token pool: tokens from --token and --tokens-file, plus one credential per
+     * GitHub App installation. The environment is only consulted when none were given.
+     */
+    private List<Credential> resolveCredentials() throws IOException {
+        List<String> tokens = new ArrayList<>(tokenOpts);
+        if (tokensFileOpt != null) {
+            for (String line : Files.readAllLines(tokensFileOpt)) {
+                String trimmed = line.strip();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    tokens.add(trimmed);
+                }
+            }
+        }
+
+        List<Credential> credentials = new ArrayList<>();
+        for (String token : new LinkedHashSet<>(tokens)) {
+            if (!token.isBlank()) {
+                credentials.add(Credential.ofToken("token #" + (credentials.size() + 1), token));
+            }
+        }
+
+        if (appIdOpt != null || appKeyOpt != null || !appInstallations.isEmpty()) {
+            if (appIdOpt == null || appKeyOpt == null || appInstallations.isEmpty()) {
+                throw new IllegalArgumentException("--app-id, --app-key and --app-installation must be used together");
+            }
+            PrivateKey key = AppInstallationCredential.readPrivateKey(appKeyOpt);
+            for (long installation : appInstallations) {
+                credentials.add(new AppInstallationCredential(appIdOpt, installation, key, apiUrl));
+            }
+        }
+
+        if (credentials.isEmpty()) {
+            String token = resolveEnvToken();
+            if (token != null) {
+                credentials.add(Credential.ofToken("token", token));
+            }
+        }
+        return credentials;
+    }
+
+    private String resolveEnvToken() {
         String env = System.getenv("GITHUB_TOKEN");
         if (env != null && !env.isBlank()) return env;
         String env2 = System.getenv("GH_TOKEN");
@@ -122,11 +469,56 @@ public class Main implements Callable<Integer> {
         return null;
     }
 
-    private Path resolveStateFilePath(String explicit, String owner, String repo) {
+    private String resolveReceiverSecret() {
+        if (receiverSecretOpt != null && !receiverSecretOpt.isBlank()) return receiverSecretOpt;
+        return System.getenv("GHAWATCH_WEBHOOK_SECRET");
+    }
+
+    static Path resolveHistoryDir(String explicit, String stateDir) {
         if (explicit != null && !explicit.isBlank()) {
             return Paths.get(explicit);
         }
 
+        if (stateDir != null && !stateDir.isBlank()) {
+            return Paths.get(stateDir, "history");
+        }
+
+        return Paths.get(System.getProperty("user.home"), ".gha-watch", "history");
+    }
+
+    /**
+     * Directory a monitor writes its event history to. Unless given, it is the directory of the
+     * repository, or of the set of repositories, below the history root, so monitors watching
+     * different repositories do not compete for one writer lock.
+     */
+    static Path resolveHistoryDir(String explicit, String stateDir, List<RepositoryRef> repos) {
+        if (explicit != null && !explicit.isBlank()) {
+            return Paths.get(explicit);
+        }
+
+        Path root = resolveHistoryDir(null, stateDir);
+        if (repos.size() == 1) {
+            return root.resolve(repos.get(0).getOwner()).resolve(repos.get(0).getName());
+        }
+
+        String names = repos.stream().map(RepositoryRef::toString).sorted().distinct().collect(Collectors.joining("\n"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(names.getBytes(StandardCharsets.UTF_8));
+            return root.resolve("set-" + HexFormat.of().formatHex(digest, 0, 6));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static Path resolveStateFilePath(String explicit, String stateDir, String owner, String repo) {
+        if (explicit != null && !explicit.isBlank()) {
+            return Paths.get(explicit);
+        }
+
+        if (stateDir != null && !stateDir.isBlank()) {
+            return Paths.get(stateDir, owner, repo, "state.json");
+        }
+
         String home = System.getProperty("user.home");
         return Paths.get(home, ".gha-watch", owner, repo, "state.json");
     }
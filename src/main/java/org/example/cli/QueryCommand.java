@@ -0,0 +1,163 @@
+package org.example.cli;
+
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+import org.example.event.history.EventHistoryQuery;
+import org.example.event.history.EventHistoryReader;
+import org.example.event.sink.ConsoleSink;
+import org.example.event.sink.EventJson;
+import org.example.event.sink.EventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * {@code gha-watch query}: range scans over the events a monitor kept with
+ * {@code --sink history}, e.g. {@code query --since 1d --branch main --status failure}.
+ */
+@CommandLine.Command(
+        name = "query",
+        description = "Print events from the local event history written by --sink history."
+)
+public class QueryCommand implements Callable<Integer> {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCommand.class);
+
+    @CommandLine.Option(names = {"--history-dir"}, description = "Event history directory; the histories of the directories below it are read as well (default: <state-dir>/history, or ~/.gha-watch/history)")
+    private String historyDirOpt;
+    @CommandLine.Option(names = {"--state-dir"}, description = "Base directory the monitor used for state files (default: ~/.gha-watch)")
+    private String stateDirOpt;
+    @CommandLine.Option(names = {"--since"}, description = "Only events of this last period, e.g. 90s, 30m, 24h or 7d")
+    private String since;
+    @CommandLine.Option(names = {"--from"}, description = "Only events at or after this ISO-8601 instant, e.g. 2024-05-01T00:00:00Z")
+    private String from;
+    @CommandLine.Option(names = {"--until"}, description = "Only events before this ISO-8601 instant")
+    private String until;
+    @CommandLine.Option(names = {"--repo"}, paramLabel = "<owner/repo>", description = "Only events of this repository")
+    private String repo;
+    @CommandLine.Option(names = {"--branch"}, description = "Only events of this branch")
+    private String branch;
+    @CommandLine.Option(names = {"--run"}, paramLabel = "<run-id>", description = "Only events of this workflow run")
+    private Long runId;
+    @CommandLine.Option(names = {"--type"}, description = "Only events of this type; repeatable: ${COMPLETION-CANDIDATES}")
+    private List<EventType> types = List.of();
+    @CommandLine.Option(names = {"--status"}, description = "Only events with this status or conclusion, e.g. failure")
+    private String status;
+    @CommandLine.Option(names = {"--limit"}, description = "Print at most this many of the newest matching events, 0 for all (default: ${DEFAULT-VALUE})", defaultValue = "100")
+    private int limit;
+    @CommandLine.Option(names = {"--count"}, description = "Print only the number of matching events")
+    private boolean count;
+    @CommandLine.Option(names = {"--json"}, description = "Print events as JSON lines instead of the console format")
+    private boolean json;
+
+    @Override
+    public Integer call() {
+        Path dir = Main.resolveHistoryDir(historyDirOpt, stateDirOpt);
+        if (!Files.isDirectory(dir)) {
+            System.err.println("No event history at " + dir + "; run the monitor with --sink history first");
+            return 2;
+        }
+
+        EventHistoryQuery query;
+        try {
+            query = buildQuery();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            return 2;
+        }
+
+        EventHistoryReader reader = new EventHistoryReader(dir);
+        long start = System.nanoTime();
+        try {
+            if (count) {
+                System.out.println(reader.count(query));
+            } else {
+                List<WorkflowEvent> events = reader.query(query);
+                print(events);
+                log.debug("{} events in {} ms", events.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Failed to read event history " + dir + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private EventHistoryQuery buildQuery() {
+        if (since != null && from != null) {
+            throw new IllegalArgumentException("--since and --from cannot be used together");
+        }
+        if (repo != null && RepositoryRef.parse(repo) == null) {
+            throw new IllegalArgumentException("Repository must be specified in the form: owner/repo");
+        }
+
+        long fromMillis = 0;
+        if (since != null) {
+            fromMillis = System.currentTimeMillis() - parseDuration(since).toMillis();
+        } else if (from != null) {
+            fromMillis = Instant.parse(from).toEpochMilli();
+        }
+        long toMillis = until == null ? Long.MAX_VALUE : Instant.parse(until).toEpochMilli();
+
+        Set<EventType> typeSet = types.isEmpty() ? Set.of() : EnumSet.copyOf(types);
+        return new EventHistoryQuery(fromMillis, toMillis, repo, branch, runId, typeSet, status, count ? 0 : limit);
+    }
+
+    private void print(List<WorkflowEvent> events) throws IOException {
+        OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        if (json) {
+            OutputStream out = new BufferedOutputStream(stdout, 64 * 1024);
+            for (WorkflowEvent event : events) {
+                out.write(EventJson.toLine(event));
+            }
+            out.flush();
+            return;
+        }
+
+        EventSink sink = new ConsoleSink(true, stdout);
+        for (WorkflowEvent event : events) {
+            sink.write(event);
+        }
+        sink.flush();
+    }
+
+    /**
+     * Parses {@code 90s}, {@code 30m}, {@code 24h} or {@code 7d}.
+     */
+    static Duration parseDuration(String text) {
+        String s = text.strip().toLowerCase();
+        if (s.length() < 2) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+
+        long amount;
+        try {
+            amount = Long.parseLong(s.substring(0, s.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + text);
+        }
+
+        return switch (s.charAt(s.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            default -> throw new IllegalArgumentException("Invalid duration: " + text);
+        };
+    }
+}
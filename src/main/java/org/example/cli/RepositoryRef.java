@@ -0,0 +1,33 @@
+package org.example.cli;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RepositoryRef {
+
+    private final String owner;
+    private final String name;
+
+    /**
+     * Parses {@code owner/repo}. Returns {@code null} if either part is missing.
+     */
+    public static RepositoryRef parse(String spec) {
+        if (spec == null || !spec.contains("/")) {
+            return null;
+        }
+
+        String[] parts = spec.strip().split("/", 2);
+        if (parts[0].isEmpty() || parts[1].isEmpty()) {
+            return null;
+        }
+
+        return new RepositoryRef(parts[0], parts[1]);
+    }
+
+    @Override
+    public String toString() {
+        return owner + "/" + name;
+    }
+}
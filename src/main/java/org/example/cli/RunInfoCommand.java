@@ -0,0 +1,68 @@
+package org.example.cli;
+
+import org.example.state.CompletedRun;
+import org.example.state.CompletedRunCache;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+
+/**
+ * {@code gha-watch run-info}: answers what happened to a run from the completed run cache of a
+ * repository, without any API request.
+ */
+@CommandLine.Command(
+        name = "run-info",
+        description = "Print the recorded outcome of a completed run from the local completed run cache."
+)
+public class RunInfoCommand implements Callable<Integer> {
+
+    @CommandLine.Parameters(index = "0", paramLabel = "<owner/repo>", description = "Repository in the form owner/repo")
+    private String repoArg;
+    @CommandLine.Parameters(index = "1", paramLabel = "<run-id>", description = "Workflow run id")
+    private long runId;
+    @CommandLine.Option(names = {"--state"}, description = "Path to the state file the monitor used (default: ~/.gha-watch/<owner>/<repo>/state.json)")
+    private String stateFileOpt;
+    @CommandLine.Option(names = {"--state-dir"}, description = "Base directory for per-repository state files (default: ~/.gha-watch)")
+    private String stateDirOpt;
+
+    @Override
+    public Integer call() {
+        RepositoryRef ref = RepositoryRef.parse(repoArg);
+        if (ref == null) {
+            System.err.println("Repository must be specified in the form: owner/repo");
+            return 2;
+        }
+
+        Path file = CompletedRunCache.pathFor(
+                Main.resolveStateFilePath(stateFileOpt, stateDirOpt, ref.getOwner(), ref.getName()));
+        CompletedRun run;
+        try {
+            run = CompletedRunCache.lookup(file, runId);
+        } catch (IOException e) {
+            System.err.println("Failed to read " + file + ": " + e.getMessage());
+            return 1;
+        }
+
+        if (run == null) {
+            System.out.println("Run " + runId + " in " + ref + " is not in the completed run cache");
+            return 1;
+        }
+
+        System.out.println("run=" + run.getRunId()
+                + " | conclusion=" + run.getConclusion()
+                + " | started=" + formatTime(run.getStartedAtMillis())
+                + " | completed=" + formatTime(run.getCompletedAtMillis())
+                + " | duration=" + Duration.ofMillis(run.getDurationMillis()).getSeconds() + "s"
+                + " | jobs=" + run.getJobCount()
+                + " | failed_jobs=" + run.getFailedJobCount());
+        return 0;
+    }
+
+    private static String formatTime(long epochMillis) {
+        return epochMillis == 0 ? "-" : Instant.ofEpochMilli(epochMillis).toString();
+    }
+}
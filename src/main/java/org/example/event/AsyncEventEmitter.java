@@ -0,0 +1,201 @@
+package org.example.event;
+
+import org.example.event.sink.EventSink;
+import org.example.metrics.Counter;
+import org.example.metrics.Gauge;
+import org.example.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Emitter that hands events to a bounded queue and writes them to its sinks from a dedicated
+ * thread, so polling never waits on console or network I/O. The writer drains the queue in
+ * batches and flushes each sink once per batch.
+ * <p>
+ * When the queue is full the {@link OverflowPolicy} decides what happens. {@link #close()}
+ * stops admitting events, waits for every producer already inside {@link #emit} and for the
+ * writer to drain the queue, and only then closes the sinks. Events emitted after that are
+ * dropped.
+ */
+public class AsyncEventEmitter extends EventEmitter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncEventEmitter.class);
+
+    private static final int MAX_BATCH = 512;
+
+    private static final Gauge QUEUED = Metrics.gauge("ghawatch_event_queue_depth",
+            "Events waiting in the async event queue");
+    private static final Counter DROPPED = Metrics.counter("ghawatch_events_dropped_total",
+            "Events discarded because the async event queue was full");
+
+    public enum OverflowPolicy {
+        /** Wait for space; nothing is lost. */
+        BLOCK,
+        /** Discard the oldest queued event. */
+        DROP_OLDEST,
+        /** Discard queued step events first; block if only run and job events are queued. */
+        DROP_STEPS_FIRST
+    }
+
+    private final BlockingQueue<WorkflowEvent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Producers hold the read lock while they enqueue, so {@link #close()} takes the write lock
+     * to know no event can be added after it.
+     */
+    private final ReadWriteLock admission = new ReentrantReadWriteLock();
+
+    private volatile boolean closed;
+
+    public AsyncEventEmitter(List<EventSink> sinks, int capacity, OverflowPolicy overflowPolicy) {
+        super(sinks);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        QUEUED.labels().setSupplier(queue::size);
+
+        this.writer = new Thread(this::drainLoop, "event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void emit(WorkflowEvent event) {
+        recordEmitted(event);
+
+        admission.readLock().lock();
+        try {
+            if (closed) {
+                log.warn("Dropped {} event emitted after the event emitter was closed", event.getEventType());
+                return;
+            }
+            enqueue(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Dropped {} event: interrupted while waiting for queue space", event.getEventType());
+        } finally {
+            admission.readLock().unlock();
+        }
+    }
+
+    private void enqueue(WorkflowEvent event) throws InterruptedException {
+        switch (overflowPolicy) {
+            case BLOCK -> queue.put(event);
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        recordDrop();
+                    }
+                }
+            }
+            case DROP_STEPS_FIRST -> {
+                while (!queue.offer(event)) {
+                    if (removeOneStepEvent()) {
+                        recordDrop();
+                    } else if (isStepEvent(event)) {
+                        recordDrop();
+                        return;
+                    } else {
+                        queue.put(event);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Waits for producers still inside emit(), including ones blocked on a full queue; the
+        // writer keeps draining meanwhile.
+        admission.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            admission.writeLock().unlock();
+        }
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // The writer still owns the sinks; writing or closing them here would race with it.
+            log.warn("Event writer did not finish within 10s; {} queued events were not written", queue.size());
+            return;
+        }
+
+        // Only left behind if the writer was interrupted.
+        List<WorkflowEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        writeBatch(rest);
+
+        if (dropped.get() > 0) {
+            log.warn("Dropped {} events because the event queue was full", dropped.get());
+        }
+
+        super.close();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        List<WorkflowEvent> batch = new ArrayList<>(MAX_BATCH);
+
+        while (!closed || !queue.isEmpty()) {
+            try {
+                WorkflowEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void recordDrop() {
+        dropped.incrementAndGet();
+        DROPPED.labels().inc();
+    }
+
+    private boolean removeOneStepEvent() {
+        Iterator<WorkflowEvent> it = queue.iterator();
+        while (it.hasNext()) {
+            if (isStepEvent(it.next())) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStepEvent(WorkflowEvent event) {
+        return event.getEventType() == EventType.STEP_STARTED
+                || event.getEventType() == EventType.STEP_COMPLETED;
+    }
+}
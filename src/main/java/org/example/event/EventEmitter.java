@@ -1,57 +1,114 @@
 package org.example.event;
 
-import java.time.format.DateTimeFormatter;
-import java.util.StringJoiner;
+import org.example.event.sink.ConsoleSink;
+import org.example.event.sink.EventSink;
+import org.example.metrics.Counter;
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class EventEmitter {
-
-    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-
-    public synchronized void emit(WorkflowEvent event) {
+import java.io.IOException;
+import java.util.List;
 
-        StringJoiner sj = new StringJoiner(" | ");
-
-        sj.add(ISO.format(event.getTimeStamp()));
-
-        sj.add(event.getEventType().name());
+public class EventEmitter {
 
-        sj.add("run=" + event.getRunId());
+    private static final Logger log = LoggerFactory.getLogger(EventEmitter.class);
+
+    private static final Counter EMITTED = Metrics.counter("ghawatch_events_emitted_total",
+            "Events emitted by type", "type");
+    private static final Histogram LAG = Metrics.histogram("ghawatch_detection_lag_seconds",
+            "Time from the GitHub timestamp of a change to its event, by event type",
+            new double[]{0.5, 1, 2, 5, 10, 20, 30, 60, 120, 300, 600}, "type");
+    private static final Counter.Child[] EMITTED_BY_TYPE = new Counter.Child[EventType.values().length];
+    private static final Histogram.Child[] LAG_BY_TYPE = new Histogram.Child[EventType.values().length];
+
+    static {
+        for (EventType type : EventType.values()) {
+            EMITTED_BY_TYPE[type.ordinal()] = EMITTED.labels(type.name());
+            LAG_BY_TYPE[type.ordinal()] = LAG.labels(type.name());
+        }
+    }
 
-        event.getJobId().ifPresentOrElse(
-                id -> sj.add("job=" + id),
-                () -> sj.add("job=-")
-        );
+    private final List<EventSink> sinks;
 
-        event.getStepNumber().ifPresentOrElse(
-                step -> sj.add("step=" + step),
-                () -> sj.add("step=-")
-        );
+    private boolean sinksClosed;
 
-        event.getBranch().ifPresentOrElse(
-                b -> sj.add("branch=" + b),
-                () -> sj.add("branch=-")
-        );
+    public EventEmitter() {
+        this(false);
+    }
 
-        event.getShaShort().ifPresentOrElse(
-                sha -> sj.add("sha=" + sha),
-                () -> sj.add("sha=-")
-        );
+    /**
+     * @param includeRepo add a {@code repo=owner/name} field to every line, needed when
+     *                    events of several repositories are merged into one stream
+     */
+    public EventEmitter(boolean includeRepo) {
+        this(List.of(new ConsoleSink(includeRepo)));
+    }
 
-        event.getStatus().ifPresentOrElse(
-                st -> sj.add("status=" + st),
-                () -> sj.add("status=-")
-        );
+    public EventEmitter(List<EventSink> sinks) {
+        this.sinks = List.copyOf(sinks);
+    }
 
-        event.getMessage().ifPresentOrElse(
-                msg -> sj.add("msg=\"" + escape(msg) + "\""),
-                () -> sj.add("msg=-")
-        );
+    public void emit(WorkflowEvent event) {
+        recordEmitted(event);
+        writeBatch(List.of(event));
+    }
 
-        System.out.println(sj.toString());
+    /**
+     * Counts the event and records its detection lag when GitHub gave a timestamp.
+     */
+    protected static void recordEmitted(WorkflowEvent event) {
+        int type = event.getEventType().ordinal();
+        EMITTED_BY_TYPE[type].inc();
+
+        long lag = event.detectionLagMillis();
+        if (lag >= 0) {
+            LAG_BY_TYPE[type].observe(lag / 1000.0);
+        }
+    }
 
+    /**
+     * Flushes and closes all sinks. Call it once nothing emits anymore; later events are
+     * dropped with a warning.
+     */
+    public synchronized void close() {
+        if (sinksClosed) {
+            return;
+        }
+        sinksClosed = true;
+
+        for (EventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                log.error("Failed to close event sink {}: {}", sink.getClass().getSimpleName(), e.getMessage());
+            }
+        }
     }
 
-    private String escape(String s) {
-        return s.replace("\"", "\\\"");
+    /**
+     * Writes a batch to every sink and flushes each sink once. A failing sink does not keep
+     * the others from receiving the batch.
+     */
+    protected synchronized void writeBatch(List<WorkflowEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (sinksClosed) {
+            log.warn("Dropped {} events emitted after the event sinks were closed", batch.size());
+            return;
+        }
+
+        for (EventSink sink : sinks) {
+            try {
+                for (WorkflowEvent event : batch) {
+                    sink.write(event);
+                }
+                sink.flush();
+            } catch (IOException e) {
+                log.error("Failed to write events to {}: {}", sink.getClass().getSimpleName(), e.getMessage());
+            }
+        }
     }
 }
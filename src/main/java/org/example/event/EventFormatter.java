@@ -0,0 +1,221 @@
+package org.example.event;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders the pipe-delimited line format into a reusable buffer. The output is identical to
+ * formatting each field with {@code DateTimeFormatter.ISO_OFFSET_DATE_TIME} and string
+ * concatenation, but steady-state formatting allocates nothing: fields are appended directly,
+ * the date/time up to the second is rendered once per second and offset, and the line is
+ * encoded to UTF-8 by hand. Not thread-safe; use one instance per writer.
+ */
+public final class EventFormatter {
+
+    private static final DateTimeFormatter SECOND_PREFIX = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+    private final boolean includeRepo;
+    private final boolean includeLag;
+    private final StringBuilder line = new StringBuilder(256);
+    private byte[] bytes = new byte[512];
+
+    private long cachedEpochSecond = Long.MIN_VALUE;
+    private ZoneOffset cachedOffset;
+    private String cachedPrefix;
+
+    public EventFormatter(boolean includeRepo) {
+        this(includeRepo, false);
+    }
+
+    /**
+     * @param includeLag end every line with a {@code lag=} field holding the detection lag in
+     *                   seconds, {@code -} when GitHub gave no timestamp
+     */
+    public EventFormatter(boolean includeRepo, boolean includeLag) {
+        this.includeRepo = includeRepo;
+        this.includeLag = includeLag;
+    }
+
+    /**
+     * Formats {@code event} without a trailing newline. The returned sequence is only valid
+     * until the next call.
+     */
+    public CharSequence format(WorkflowEvent event) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+
+        appendTimestamp(sb, event.getTimeStamp());
+        sb.append(" | ").append(event.getEventType().name());
+
+        if (includeRepo) {
+            sb.append(" | repo=").append(event.getRepo());
+        }
+
+        sb.append(" | run=").append(event.getRunId());
+
+        sb.append(" | job=");
+        Long jobId = event.jobIdOrNull();
+        if (jobId != null) {
+            sb.append(jobId.longValue());
+        } else {
+            sb.append('-');
+        }
+
+        sb.append(" | step=");
+        Integer step = event.stepNumberOrNull();
+        if (step != null) {
+            sb.append(step.intValue());
+        } else {
+            sb.append('-');
+        }
+
+        appendField(sb, " | branch=", event.branchOrNull());
+        appendField(sb, " | sha=", event.shaShortOrNull());
+        appendField(sb, " | status=", event.statusOrNull());
+
+        sb.append(" | msg=");
+        String msg = event.messageOrNull();
+        if (msg != null) {
+            sb.append('"');
+            for (int i = 0; i < msg.length(); i++) {
+                char c = msg.charAt(i);
+                if (c == '"') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append('"');
+        } else {
+            sb.append('-');
+        }
+
+        if (includeLag) {
+            sb.append(" | lag=");
+            long lag = event.detectionLagMillis();
+            if (lag >= 0) {
+                appendSeconds(sb, lag);
+            } else {
+                sb.append('-');
+            }
+        }
+
+        return sb;
+    }
+
+    /**
+     * Formats {@code event} followed by a newline as UTF-8 into {@link #bytes()} and returns
+     * the number of bytes written.
+     */
+    public int encodeLine(WorkflowEvent event) {
+        CharSequence chars = format(event);
+        int len = chars.length();
+
+        ensureCapacity(len * 3 + 1);
+        byte[] out = bytes;
+        int pos = 0;
+
+        for (int i = 0; i < len; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, chars.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        out[pos++] = '\n';
+        return pos;
+    }
+
+    /**
+     * Buffer filled by {@link #encodeLine}; may be replaced when a longer line is encoded.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    private void appendTimestamp(StringBuilder sb, OffsetDateTime ts) {
+        long epochSecond = ts.toEpochSecond();
+        ZoneOffset offset = ts.getOffset();
+
+        if (epochSecond != cachedEpochSecond || !offset.equals(cachedOffset)) {
+            cachedPrefix = SECOND_PREFIX.format(ts);
+            cachedEpochSecond = epochSecond;
+            cachedOffset = offset;
+        }
+
+        sb.append(cachedPrefix);
+        appendFraction(sb, ts.getNano());
+        sb.append(offset.getId());
+    }
+
+    /**
+     * Same digits as ISO_LOCAL_TIME: nothing for a whole second, otherwise up to nine digits
+     * without trailing zeros.
+     */
+    private static void appendFraction(StringBuilder sb, int nano) {
+        if (nano == 0) {
+            return;
+        }
+
+        int digits = 9;
+        while (nano % 10 == 0) {
+            nano /= 10;
+            digits--;
+        }
+
+        sb.append('.');
+        int start = sb.length();
+        for (int i = 0; i < digits; i++) {
+            sb.append('0');
+        }
+        for (int i = start + digits - 1; i >= start; i--) {
+            sb.setCharAt(i, (char) ('0' + nano % 10));
+            nano /= 10;
+        }
+    }
+
+    /**
+     * Milliseconds as seconds with three decimals and an {@code s} suffix.
+     */
+    private static void appendSeconds(StringBuilder sb, long millis) {
+        sb.append(millis / 1000).append('.');
+        long fraction = millis % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction).append('s');
+    }
+
+    private static void appendField(StringBuilder sb, String label, String value) {
+        sb.append(label);
+        if (value != null) {
+            sb.append(value);
+        } else {
+            sb.append('-');
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (bytes.length < needed) {
+            bytes = new byte[Math.max(needed, bytes.length * 2)];
+        }
+    }
+}
@@ -19,6 +19,15 @@ public class WorkflowEvent {
     private final String status;
     private final String message;
 
+    /**
+     * When GitHub says the change happened, or {@code null} if the payload does not tell.
+     */
+    private final OffsetDateTime sourceTime;
+
+    public WorkflowEvent(OffsetDateTime timeStamp, EventType eventType, String repo, Long runId, Long jobId,
+                         Integer stepNumber, String branch, String shaShort, String status, String message) {
+        this(timeStamp, eventType, repo, runId, jobId, stepNumber, branch, shaShort, status, message, null);
+    }
 
     public OffsetDateTime getTimeStamp() {
         return timeStamp;
@@ -59,4 +68,51 @@ public class WorkflowEvent {
     public Optional<String> getMessage() {
         return Optional.ofNullable(message);
     }
+
+    public Optional<OffsetDateTime> getSourceTime() {
+        return Optional.ofNullable(sourceTime);
+    }
+
+    /**
+     * Milliseconds from the GitHub timestamp to this event, or -1 if there is none. Clock skew
+     * that would make it negative counts as zero.
+     */
+    public long detectionLagMillis() {
+        if (sourceTime == null) {
+            return -1;
+        }
+        long millis = (timeStamp.toEpochSecond() - sourceTime.toEpochSecond()) * 1000
+                + (timeStamp.getNano() - sourceTime.getNano()) / 1_000_000;
+        return Math.max(0, millis);
+    }
+
+    // Nullable accessors for formatting hot paths, where the Optional getters would allocate.
+
+    public Long jobIdOrNull() {
+        return jobId;
+    }
+
+    public Integer stepNumberOrNull() {
+        return stepNumber;
+    }
+
+    public String branchOrNull() {
+        return branch;
+    }
+
+    public String shaShortOrNull() {
+        return shaShort;
+    }
+
+    public String statusOrNull() {
+        return status;
+    }
+
+    public String messageOrNull() {
+        return message;
+    }
+
+    public OffsetDateTime sourceTimeOrNull() {
+        return sourceTime;
+    }
 }
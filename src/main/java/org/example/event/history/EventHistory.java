@@ -0,0 +1,318 @@
+package org.example.event.history;
+
+import org.example.event.WorkflowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only store of every emitted event, kept in a directory of segment files
+ * ({@code segment-0000000001.log}, ...) that {@link EventHistoryReader} queries. Events are
+ * appended in the binary form of {@link Record}; once a segment reaches {@code segmentBytes} it
+ * is sealed with its {@link SegmentIndex} and a new one is started. The index of the active
+ * segment is saved on {@link #close()} and every {@value #INDEX_INTERVAL_MILLIS} ms of flushes,
+ * and reopening a store continues the segment after dropping a torn last record.
+ * <p>
+ * Sealed segments can be limited by age and by the total size of the directory. Whole segments
+ * are deleted together with their index, oldest first, when the store opens and whenever it
+ * seals a segment; the active segment is never deleted.
+ * <p>
+ * Like the NDJSON sink, appends are buffered until {@link #flush()} and never fsynced. A
+ * directory has a single writer: opening one that another store holds, in this or another
+ * process, fails. Monitors of different repositories default to different directories, which
+ * {@link EventHistoryReader} reads together.
+ */
+public class EventHistory implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventHistory.class);
+
+    static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * How often a flush also saves the index of the active segment, bounding what a query has
+     * to scan unindexed.
+     */
+    private static final long INDEX_INTERVAL_MILLIS = 30_000;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long retentionMillis;
+    private final long maxBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    private long segmentNumber;
+    private Path segment;
+    private FileChannel channel;
+    private SegmentIndex.Builder index;
+    /** Segment length including what is still buffered. */
+    private int length;
+    private boolean closed;
+    private int indexedRecords;
+    private long indexedAtMillis = System.currentTimeMillis();
+
+    public EventHistory(Path dir, long segmentBytes) throws IOException {
+        this(dir, segmentBytes, 0, 0);
+    }
+
+    /**
+     * @param retentionMillis how long sealed segments are kept after their last write, 0 for
+     *                        ever
+     * @param maxBytes        total size of segments and indexes beyond which the oldest sealed
+     *                        segments are deleted, 0 for no limit
+     */
+    public EventHistory(Path dir, long segmentBytes, long retentionMillis, long maxBytes) throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 2 GiB");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retentionMillis;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(dir);
+        this.lockChannel = FileChannel.open(dir.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = tryLock(lockChannel, dir);
+
+        try {
+            List<Path> segments = segments(dir);
+            if (segments.isEmpty()) {
+                startSegment(1);
+            } else {
+                reopen(segments.get(segments.size() - 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+        applyRetention();
+    }
+
+    public synchronized void append(WorkflowEvent event) throws IOException {
+        ensureOpen();
+        byte[] record = Record.encode(event);
+        if (length > 0 && (long) length + record.length > segmentBytes) {
+            seal();
+            startSegment(segmentNumber + 1);
+            applyRetention();
+        }
+
+        if (record.length > buffer.remaining()) {
+            writeBuffer();
+        }
+        if (record.length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(record));
+        } else {
+            buffer.put(record);
+        }
+
+        index.add(ByteBuffer.wrap(record), 0, length, record.length);
+        length += record.length;
+    }
+
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        writeBuffer();
+
+        long now = System.currentTimeMillis();
+        if (index.getRecordCount() > indexedRecords && now - indexedAtMillis >= INDEX_INTERVAL_MILLIS) {
+            saveIndex();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            seal();
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Locks {@code dir} for this store. A lock held by this JVM surfaces as
+     * {@link OverlappingFileLockException} rather than {@code null}; both mean the directory
+     * already has a writer.
+     */
+    private static FileLock tryLock(FileChannel lockChannel, Path dir) throws IOException {
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Event history " + dir + " is already being written; give each monitor its own directory with --sink history:<dir>");
+        }
+        return lock;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Event history " + dir + " is closed");
+        }
+    }
+
+    /**
+     * Segment files of {@code dir}, oldest first.
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches()).forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * {@code root} and the directories below it that hold segment files, in path order.
+     */
+    static List<Path> directories(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches())
+                    .map(Path::getParent)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Deletes the oldest sealed segments while they are past the retention period or the
+     * directory is over its size limit. A failure is only logged; appending goes on.
+     */
+    private void applyRetention() {
+        if (retentionMillis <= 0 && maxBytes <= 0) {
+            return;
+        }
+
+        try {
+            List<Path> segments = segments(dir);
+            long[] sizes = new long[segments.size()];
+            long total = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Path indexPath = SegmentIndex.pathFor(segments.get(i));
+                sizes[i] = Files.size(segments.get(i)) + (Files.exists(indexPath) ? Files.size(indexPath) : 0);
+                total += sizes[i];
+            }
+
+            long expiredBefore = retentionMillis > 0 ? System.currentTimeMillis() - retentionMillis : Long.MIN_VALUE;
+            int deleted = 0;
+            long freed = 0;
+            for (int i = 0; i < segments.size() && !segments.get(i).equals(segment); i++) {
+                Path sealed = segments.get(i);
+                boolean expired = Files.getLastModifiedTime(sealed).toMillis() < expiredBefore;
+                if (!expired && (maxBytes <= 0 || total <= maxBytes)) {
+                    break;
+                }
+                // The segment goes first, so a reader never finds it without its index.
+                Files.deleteIfExists(sealed);
+                Files.deleteIfExists(SegmentIndex.pathFor(sealed));
+                total -= sizes[i];
+                freed += sizes[i];
+                deleted++;
+            }
+
+            if (deleted > 0) {
+                log.info("Deleted {} event history segments ({} KiB) of {} past the retention limits", deleted, freed / 1024, dir);
+            }
+        } catch (IOException e) {
+            log.warn("Could not apply the retention limits to event history {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void seal() throws IOException {
+        writeBuffer();
+        saveIndex();
+        channel.close();
+    }
+
+    private void saveIndex() throws IOException {
+        index.write(SegmentIndex.pathFor(segment));
+        indexedRecords = index.getRecordCount();
+        indexedAtMillis = System.currentTimeMillis();
+        log.debug("Indexed {} events of {}", indexedRecords, segment);
+    }
+
+    private void startSegment(long number) throws IOException {
+        segmentNumber = number;
+        segment = dir.resolve(String.format("segment-%010d.log", number));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(0);
+        index = new SegmentIndex.Builder();
+        indexedRecords = 0;
+        length = 0;
+    }
+
+    /**
+     * Continues the newest segment, rebuilding its index and cutting off a torn last record.
+     */
+    private void reopen(Path last) throws IOException {
+        Matcher m = SEGMENT_NAME.matcher(last.getFileName().toString());
+        m.matches();
+        segmentNumber = Long.parseLong(m.group(1));
+        segment = last;
+        channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = new SegmentIndex.Builder();
+
+        long size = channel.size();
+        int limit = (int) Math.min(size, Integer.MAX_VALUE);
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+        int at = 0;
+        for (int len; (len = Record.lengthAt(data, at, limit)) > 0; at += len) {
+            index.add(data, at, at, len);
+        }
+        length = at;
+
+        if (length < size) {
+            log.warn("Dropping {} bytes of a torn event record at the end of {}", size - length, segment);
+            channel.truncate(length);
+        }
+        channel.position(length);
+        log.info("Continuing event history {} at {} events", segment, index.getRecordCount());
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.event.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.event.EventType;
+
+import java.util.Set;
+
+/**
+ * What {@link EventHistoryReader} should return. Null fields and an empty type set match
+ * everything.
+ */
+@Getter
+@AllArgsConstructor
+public class EventHistoryQuery {
+
+    /** Inclusive lower bound of the event time, epoch millis. */
+    private final long fromMillis;
+    /** Exclusive upper bound of the event time, epoch millis. */
+    private final long toMillis;
+    private final String repo;
+    private final String branch;
+    private final Long runId;
+    private final Set<EventType> types;
+    private final String status;
+    /** Most events returned, the newest ones; 0 for no limit. */
+    private final int limit;
+}
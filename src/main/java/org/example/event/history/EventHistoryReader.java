@@ -0,0 +1,310 @@
+package org.example.event.history;
+
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers {@link EventHistoryQuery}s from the segments of an {@link EventHistory} directory and
+ * of the history directories below it, also while monitors are appending to them. Segments are
+ * memory-mapped and searched newest first, so a query with a limit stops as soon as it has
+ * enough events.
+ * <p>
+ * Within the indexed part of a segment the time index narrows the search to the blocks that
+ * overlap the time range. Inside them the shortest posting list among the run, branch,
+ * repository and single event type of the query is followed; without one the blocks are
+ * scanned. The part written since the index was last saved
+ * is scanned record by record. Every candidate is checked against the whole query in place and
+ * only the returned events are decoded.
+ */
+public class EventHistoryReader {
+
+    private static final Logger log = LoggerFactory.getLogger(EventHistoryReader.class);
+
+    private final Path dir;
+
+    public EventHistoryReader(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Matching events in the order they were written, or by time across several history
+     * directories. With a limit only the newest ones are returned.
+     */
+    public List<WorkflowEvent> query(EventHistoryQuery query) throws IOException {
+        List<Path> dirs = EventHistory.directories(dir);
+        if (dirs.size() <= 1) {
+            return query(dirs.isEmpty() ? dir : dirs.get(0), query);
+        }
+
+        // Each directory has its own writer; their events only line up by time.
+        List<WorkflowEvent> merged = new ArrayList<>();
+        for (Path historyDir : dirs) {
+            merged.addAll(query(historyDir, query));
+        }
+        merged.sort(Comparator.comparing(e -> e.getTimeStamp().toInstant()));
+
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+        return merged.size() > limit ? new ArrayList<>(merged.subList(merged.size() - limit, merged.size())) : merged;
+    }
+
+    /**
+     * Number of matching events; the limit of the query is ignored.
+     */
+    public long count(EventHistoryQuery query) throws IOException {
+        Matcher matcher = new Matcher(query);
+        long count = 0;
+        for (Path historyDir : EventHistory.directories(dir)) {
+            for (Path path : EventHistory.segments(historyDir)) {
+                Segment segment = Segment.open(path, query);
+                if (segment != null) {
+                    count += segment.matches(matcher, Integer.MAX_VALUE).size();
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<WorkflowEvent> query(Path historyDir, EventHistoryQuery query) throws IOException {
+        Matcher matcher = new Matcher(query);
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+
+        List<Path> segments = EventHistory.segments(historyDir);
+        List<List<WorkflowEvent>> newestFirst = new ArrayList<>();
+        int found = 0;
+
+        for (int i = segments.size() - 1; i >= 0 && found < limit; i--) {
+            Segment segment = Segment.open(segments.get(i), query);
+            if (segment == null) {
+                continue;
+            }
+
+            IntList offsets = segment.matches(matcher, limit - found);
+            int from = Math.max(0, offsets.size() - (limit - found));
+            List<WorkflowEvent> events = new ArrayList<>(offsets.size() - from);
+            for (int j = from; j < offsets.size(); j++) {
+                events.add(Record.decode(segment.data, offsets.get(j)));
+            }
+            newestFirst.add(events);
+            found += events.size();
+        }
+
+        Collections.reverse(newestFirst);
+        List<WorkflowEvent> result = new ArrayList<>(found);
+        newestFirst.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * A mapped segment and its index, if it has one.
+     */
+    private static final class Segment {
+
+        private final ByteBuffer data;
+        private final int length;
+        private final SegmentIndex index;
+        private final EventHistoryQuery query;
+
+        private Segment(ByteBuffer data, int length, SegmentIndex index, EventHistoryQuery query) {
+            this.data = data;
+            this.length = length;
+            this.index = index;
+            this.query = query;
+        }
+
+        /**
+         * Maps {@code path}, or returns {@code null} if its index shows it has nothing in the
+         * time range of the query or it no longer exists.
+         */
+        static Segment open(Path path, EventHistoryQuery query) throws IOException {
+            SegmentIndex index = null;
+            Path indexPath = SegmentIndex.pathFor(path);
+            if (Files.exists(indexPath)) {
+                try {
+                    index = SegmentIndex.read(indexPath);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ignoring unreadable index {}: {}", indexPath, e.getMessage());
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                int length = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+                if (index != null && index.getIndexedLength() > length) {
+                    // The segment was cut back after a torn write; the index no longer fits.
+                    index = null;
+                }
+                if (index != null && index.getIndexedLength() == length
+                        && !index.overlaps(query.getFromMillis(), query.getToMillis())) {
+                    return null;
+                }
+                return new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), length, index, query);
+            } catch (NoSuchFileException e) {
+                // Deleted by retention since the directory was listed.
+                return null;
+            }
+        }
+
+        /**
+         * Ascending offsets of the matching records. The unindexed tail and then the blocks of
+         * the time index are searched newest first, stopping once at least {@code needed}
+         * records were found.
+         */
+        IntList matches(Matcher matcher, int needed) {
+            List<IntList> newestFirst = new ArrayList<>();
+            int scanFrom = index == null ? 0 : (int) index.getIndexedLength();
+
+            IntList tail = new IntList();
+            scan(matcher, scanFrom, length, tail);
+            newestFirst.add(tail);
+            int found = tail.size();
+
+            if (index != null) {
+                IntBuffer postings = postings();
+                List<int[]> ranges = index.blockRanges(query.getFromMillis(), query.getToMillis());
+                for (int i = ranges.size() - 1; i >= 0 && found < needed; i--) {
+                    int[] range = ranges.get(i);
+                    IntList block = new IntList();
+                    if (postings == null) {
+                        scan(matcher, range[0], range[1], block);
+                    } else {
+                        select(matcher, postings, range[0], range[1], block);
+                    }
+                    newestFirst.add(block);
+                    found += block.size();
+                }
+            }
+
+            if (newestFirst.size() == 1) {
+                return tail;
+            }
+            IntList offsets = new IntList();
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                IntList chunk = newestFirst.get(i);
+                for (int j = 0; j < chunk.size(); j++) {
+                    offsets.add(chunk.get(j));
+                }
+            }
+            return offsets;
+        }
+
+        /**
+         * The shortest posting list among the filters of the query, or {@code null} if it has
+         * none an index covers.
+         */
+        private IntBuffer postings() {
+            SegmentIndex.Kind bestKind = null;
+            Object bestKey = null;
+            int best = Integer.MAX_VALUE;
+
+            Object[][] candidates = {
+                    {SegmentIndex.Kind.RUN, query.getRunId()},
+                    {SegmentIndex.Kind.BRANCH, query.getBranch()},
+                    {SegmentIndex.Kind.REPO, query.getRepo()},
+                    {SegmentIndex.Kind.TYPE, query.getTypes() != null && query.getTypes().size() == 1
+                            ? query.getTypes().iterator().next().ordinal()
+                            : null}
+            };
+            for (Object[] candidate : candidates) {
+                if (candidate[1] == null) {
+                    continue;
+                }
+                SegmentIndex.Kind kind = (SegmentIndex.Kind) candidate[0];
+                int count = index.postingCount(kind, candidate[1]);
+                if (count < best) {
+                    best = count;
+                    bestKind = kind;
+                    bestKey = candidate[1];
+                }
+            }
+            return bestKind == null ? null : index.postings(bestKind, bestKey);
+        }
+
+        /**
+         * Checks the postings that fall in {@code [from, to)}, found by binary search.
+         */
+        private void select(Matcher matcher, IntBuffer postings, int from, int to, IntList offsets) {
+            int lo = 0;
+            int hi = postings.limit();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (postings.get(mid) < from) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            for (int i = lo; i < postings.limit(); i++) {
+                int at = postings.get(i);
+                if (at >= to) {
+                    break;
+                }
+                if (matcher.matches(data, at)) {
+                    offsets.add(at);
+                }
+            }
+        }
+
+        private void scan(Matcher matcher, int from, int to, IntList offsets) {
+            for (int at = from, len; (len = Record.lengthAt(data, at, to)) > 0; at += len) {
+                if (matcher.matches(data, at)) {
+                    offsets.add(at);
+                }
+            }
+        }
+    }
+
+    /**
+     * The query with its strings encoded once, checked against records in place.
+     */
+    private static final class Matcher {
+
+        private final long fromMillis;
+        private final long toMillis;
+        private final Long runId;
+        private final boolean[] types;
+        private final byte[] repo;
+        private final byte[] branch;
+        private final byte[] status;
+
+        Matcher(EventHistoryQuery query) {
+            this.fromMillis = query.getFromMillis();
+            this.toMillis = query.getToMillis();
+            this.runId = query.getRunId();
+            this.repo = Record.utf8(query.getRepo());
+            this.branch = Record.utf8(query.getBranch());
+            this.status = Record.utf8(query.getStatus());
+
+            if (query.getTypes() == null || query.getTypes().isEmpty()) {
+                this.types = null;
+            } else {
+                this.types = new boolean[EventType.values().length];
+                query.getTypes().forEach(t -> types[t.ordinal()] = true);
+            }
+        }
+
+        boolean matches(ByteBuffer data, int at) {
+            long time = Record.time(data, at);
+            return time >= fromMillis && time < toMillis
+                    && (runId == null || Record.runId(data, at) == runId)
+                    && (types == null || types[Record.type(data, at).ordinal()])
+                    && (repo == null || Record.stringEquals(data, at, Record.REPO, repo))
+                    && (branch == null || Record.stringEquals(data, at, Record.BRANCH, branch))
+                    && (status == null || Record.stringEquals(data, at, Record.STATUS, status));
+        }
+    }
+}
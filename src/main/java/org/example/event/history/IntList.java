@@ -0,0 +1,27 @@
+package org.example.event.history;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, for record offsets.
+ */
+final class IntList {
+
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int i) {
+        return values[i];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.event.history;
+
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary form of one event in a segment file. A record starts with its total length and the
+ * fixed-width fields, followed by the strings, each an unsigned short byte length
+ * ({@code 0xFFFF} for null) and its UTF-8 bytes:
+ * <pre>
+ * int length | long time | long source time | byte type | long run | long job | int step
+ *   | repo | branch | sha | status | message
+ * </pre>
+ * Times are epoch millis. An absent source time or job id is {@link #NONE}, an absent step
+ * {@link Integer#MIN_VALUE}. Queries read the fields in place and decode only the events they
+ * return.
+ */
+final class Record {
+
+    static final int TIME = 4;
+    static final int SOURCE_TIME = 12;
+    static final int TYPE = 20;
+    static final int RUN_ID = 21;
+    static final int JOB_ID = 29;
+    static final int STEP = 37;
+    static final int STRINGS = 41;
+
+    static final int REPO = 0;
+    static final int BRANCH = 1;
+    static final int STATUS = 3;
+
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final int STRING_COUNT = 5;
+    private static final int MIN_LENGTH = STRINGS + 2 * STRING_COUNT;
+    private static final int NULL_STRING = 0xFFFF;
+    /** Four bytes per char at most keeps every string below {@link #NULL_STRING} bytes. */
+    private static final int MAX_STRING_CHARS = 16_000;
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private Record() {
+    }
+
+    static byte[] encode(WorkflowEvent event) {
+        byte[][] strings = {
+                utf8(event.getRepo()), utf8(event.branchOrNull()), utf8(event.shaShortOrNull()),
+                utf8(event.statusOrNull()), utf8(event.messageOrNull())
+        };
+        int length = STRINGS;
+        for (byte[] s : strings) {
+            length += 2 + (s == null ? 0 : s.length);
+        }
+
+        OffsetDateTime source = event.sourceTimeOrNull();
+        Long jobId = event.jobIdOrNull();
+        Integer step = event.stepNumberOrNull();
+
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        buf.putInt(length);
+        buf.putLong(event.getTimeStamp().toInstant().toEpochMilli());
+        buf.putLong(source == null ? NONE : source.toInstant().toEpochMilli());
+        buf.put((byte) event.getEventType().ordinal());
+        buf.putLong(event.getRunId());
+        buf.putLong(jobId == null ? NONE : jobId);
+        buf.putInt(step == null ? Integer.MIN_VALUE : step);
+        for (byte[] s : strings) {
+            if (s == null) {
+                buf.putShort((short) NULL_STRING);
+            } else {
+                buf.putShort((short) s.length);
+                buf.put(s);
+            }
+        }
+        return buf.array();
+    }
+
+    static WorkflowEvent decode(ByteBuffer buf, int at) {
+        String[] strings = new String[STRING_COUNT];
+        int pos = at + STRINGS;
+        for (int i = 0; i < STRING_COUNT; i++) {
+            int len = buf.getShort(pos) & 0xFFFF;
+            pos += 2;
+            if (len != NULL_STRING) {
+                byte[] bytes = new byte[len];
+                buf.get(pos, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                pos += len;
+            }
+        }
+
+        long source = buf.getLong(at + SOURCE_TIME);
+        long jobId = buf.getLong(at + JOB_ID);
+        int step = buf.getInt(at + STEP);
+        return new WorkflowEvent(
+                utc(time(buf, at)),
+                type(buf, at),
+                strings[REPO],
+                runId(buf, at),
+                jobId == NONE ? null : jobId,
+                step == Integer.MIN_VALUE ? null : step,
+                strings[BRANCH],
+                strings[2],
+                strings[STATUS],
+                strings[4],
+                source == NONE ? null : utc(source)
+        );
+    }
+
+    /**
+     * Length of the record at {@code at}, or -1 if no complete record starts there, as after
+     * a torn write.
+     */
+    static int lengthAt(ByteBuffer buf, int at, int limit) {
+        if (limit - at < MIN_LENGTH) {
+            return -1;
+        }
+        int length = buf.getInt(at);
+        return length >= MIN_LENGTH && length <= limit - at ? length : -1;
+    }
+
+    static long time(ByteBuffer buf, int at) {
+        return buf.getLong(at + TIME);
+    }
+
+    static EventType type(ByteBuffer buf, int at) {
+        return TYPES[buf.get(at + TYPE)];
+    }
+
+    static long runId(ByteBuffer buf, int at) {
+        return buf.getLong(at + RUN_ID);
+    }
+
+    static String string(ByteBuffer buf, int at, int field) {
+        int pos = stringPosition(buf, at, field);
+        int len = buf.getShort(pos) & 0xFFFF;
+        if (len == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buf.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a string field with {@code expected} without decoding it.
+     */
+    static boolean stringEquals(ByteBuffer buf, int at, int field, byte[] expected) {
+        int pos = stringPosition(buf, at, field);
+        int len = buf.getShort(pos) & 0xFFFF;
+        if (len != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf.get(pos + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] utf8(String s) {
+        if (s == null) {
+            return null;
+        }
+        return (s.length() > MAX_STRING_CHARS ? s.substring(0, MAX_STRING_CHARS) : s).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringPosition(ByteBuffer buf, int at, int field) {
+        int pos = at + STRINGS;
+        for (int i = 0; i < field; i++) {
+            int len = buf.getShort(pos) & 0xFFFF;
+            pos += 2 + (len == NULL_STRING ? 0 : len);
+        }
+        return pos;
+    }
+
+    private static OffsetDateTime utc(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+}
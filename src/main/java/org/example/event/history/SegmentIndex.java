@@ -0,0 +1,298 @@
+package org.example.event.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of one segment, written next to it ({@code segment-N.idx}) when the segment is sealed
+ * and when the store closes. It covers the first {@link #getIndexedLength()} bytes of the
+ * segment; a reader scans whatever was appended after that.
+ * <p>
+ * The time index lists every {@value #BLOCK_RECORDS}th record offset with the time range of
+ * the records up to the next one, so a range scan skips whole blocks even when concurrent
+ * engines wrote events slightly out of order, and a limited query can stop after the newest
+ * blocks. The secondary indexes map each event type,
+ * repository, branch and run id to the ascending offsets of its records. The file is mapped
+ * and only the key directories are read up front; posting lists are used in place.
+ */
+final class SegmentIndex {
+
+    static final int BLOCK_RECORDS = 256;
+
+    private static final int MAGIC = 0x47484549; // "GHEI"
+    private static final int VERSION = 1;
+
+    enum Kind { TYPE, REPO, BRANCH, RUN }
+
+    private final long indexedLength;
+    private final int recordCount;
+    private final long minTime;
+    private final long maxTime;
+    private final int[] blockOffsets;
+    private final long[] blockMinTimes;
+    private final long[] blockMaxTimes;
+    private final ByteBuffer file;
+    /** Per kind, the key and the position and length of its posting list, packed into a long. */
+    private final List<Map<Object, Long>> directories;
+
+    private SegmentIndex(long indexedLength, int recordCount, long minTime, long maxTime, int[] blockOffsets,
+                         long[] blockMinTimes, long[] blockMaxTimes, ByteBuffer file, List<Map<Object, Long>> directories) {
+        this.indexedLength = indexedLength;
+        this.recordCount = recordCount;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.blockOffsets = blockOffsets;
+        this.blockMinTimes = blockMinTimes;
+        this.blockMaxTimes = blockMaxTimes;
+        this.file = file;
+        this.directories = directories;
+    }
+
+    long getIndexedLength() {
+        return indexedLength;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    boolean overlaps(long fromMillis, long toMillis) {
+        return recordCount > 0 && minTime < toMillis && maxTime >= fromMillis;
+    }
+
+    /**
+     * Byte ranges of the blocks whose records may fall in {@code [fromMillis, toMillis)}, oldest
+     * first, as pairs of start and end offsets.
+     */
+    List<int[]> blockRanges(long fromMillis, long toMillis) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int i = 0; i < blockOffsets.length; i++) {
+            if (blockMinTimes[i] < toMillis && blockMaxTimes[i] >= fromMillis) {
+                int end = i + 1 < blockOffsets.length ? blockOffsets[i + 1] : (int) indexedLength;
+                ranges.add(new int[]{blockOffsets[i], end});
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Length of the posting list of {@code key}, 0 if no record has it.
+     */
+    int postingCount(Kind kind, Object key) {
+        Long entry = directories.get(kind.ordinal()).get(key);
+        return entry == null ? 0 : (int) (long) entry;
+    }
+
+    /**
+     * Ascending record offsets for {@code key}, empty if no record has it. Keys are an
+     * {@link Integer} event type ordinal, a repository or branch {@link String}, or a
+     * {@link Long} run id.
+     */
+    IntBuffer postings(Kind kind, Object key) {
+        Long entry = directories.get(kind.ordinal()).get(key);
+        if (entry == null) {
+            return IntBuffer.allocate(0);
+        }
+        int position = (int) (entry >>> 32);
+        int count = (int) (long) entry;
+        return file.slice(position, count * Integer.BYTES).asIntBuffer();
+    }
+
+    static Path pathFor(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".idx");
+    }
+
+    static SegmentIndex read(Path path) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buf.remaining() < 44 || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+            throw new IOException("Not a segment index: " + path);
+        }
+        long indexedLength = buf.getLong();
+        int recordCount = buf.getInt();
+        long minTime = buf.getLong();
+        long maxTime = buf.getLong();
+        int directoriesPosition = buf.getInt();
+        int blockCount = buf.getInt();
+
+        int[] offsets = new int[blockCount];
+        long[] mins = new long[blockCount];
+        long[] maxs = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            offsets[i] = buf.getInt();
+            mins[i] = buf.getLong();
+            maxs[i] = buf.getLong();
+        }
+
+        buf.position(directoriesPosition);
+        List<Map<Object, Long>> directories = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            int keys = buf.getInt();
+            Map<Object, Long> directory = new HashMap<>(keys * 2);
+            for (int i = 0; i < keys; i++) {
+                Object key = switch (kind) {
+                    case TYPE -> (int) buf.get();
+                    case RUN -> buf.getLong();
+                    case REPO, BRANCH -> {
+                        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+                        buf.get(bytes);
+                        yield new String(bytes, StandardCharsets.UTF_8);
+                    }
+                };
+                long position = buf.getInt();
+                long count = buf.getInt();
+                directory.put(key, position << 32 | count);
+            }
+            directories.add(directory);
+        }
+
+        return new SegmentIndex(indexedLength, recordCount, minTime, maxTime, offsets, mins, maxs, buf, directories);
+    }
+
+    /**
+     * Collects the index of the segment being written, one record at a time.
+     */
+    static final class Builder {
+
+        private int recordCount;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private long indexedLength;
+
+        private final IntList blockOffsets = new IntList();
+        private long[] blockMinTimes = new long[16];
+        private long[] blockMaxTimes = new long[16];
+
+        private final List<Map<Object, IntList>> postings = new ArrayList<>();
+
+        Builder() {
+            for (int i = 0; i < Kind.values().length; i++) {
+                postings.add(new HashMap<>());
+            }
+        }
+
+        /**
+         * Adds the record that starts at {@code at} in {@code record} and is stored at
+         * {@code offset} in the segment.
+         */
+        void add(ByteBuffer record, int at, int offset, int length) {
+            long time = Record.time(record, at);
+            int block = recordCount / BLOCK_RECORDS;
+            if (recordCount % BLOCK_RECORDS == 0) {
+                blockOffsets.add(offset);
+                if (block == blockMinTimes.length) {
+                    blockMinTimes = Arrays.copyOf(blockMinTimes, block * 2);
+                    blockMaxTimes = Arrays.copyOf(blockMaxTimes, block * 2);
+                }
+                blockMinTimes[block] = time;
+                blockMaxTimes[block] = time;
+            } else {
+                blockMinTimes[block] = Math.min(blockMinTimes[block], time);
+                blockMaxTimes[block] = Math.max(blockMaxTimes[block], time);
+            }
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+
+            post(Kind.TYPE, Record.type(record, at).ordinal(), offset);
+            post(Kind.REPO, Record.string(record, at, Record.REPO), offset);
+            post(Kind.BRANCH, Record.string(record, at, Record.BRANCH), offset);
+            post(Kind.RUN, Record.runId(record, at), offset);
+
+            recordCount++;
+            indexedLength = (long) offset + length;
+        }
+
+        int getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Writes the index to {@code path} through a temporary file, so readers never see a
+         * partial one.
+         */
+        void write(Path path) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + recordCount * 20);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            int blockCount = blockOffsets.size();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(indexedLength);
+            out.writeInt(recordCount);
+            out.writeLong(recordCount == 0 ? 0 : minTime);
+            out.writeLong(recordCount == 0 ? 0 : maxTime);
+            out.writeInt(0); // directories position, patched below
+            out.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                out.writeInt(blockOffsets.get(i));
+                out.writeLong(blockMinTimes[i]);
+                out.writeLong(blockMaxTimes[i]);
+            }
+
+            // Posting lists first, then the directories pointing at them.
+            List<Map<Object, Integer>> positions = new ArrayList<>();
+            for (Map<Object, IntList> byKey : postings) {
+                Map<Object, Integer> kindPositions = new HashMap<>();
+                for (Map.Entry<Object, IntList> e : byKey.entrySet()) {
+                    kindPositions.put(e.getKey(), out.size());
+                    IntList list = e.getValue();
+                    for (int i = 0; i < list.size(); i++) {
+                        out.writeInt(list.get(i));
+                    }
+                }
+                positions.add(kindPositions);
+            }
+
+            int directoriesPosition = out.size();
+            for (Kind kind : Kind.values()) {
+                Map<Object, IntList> byKey = postings.get(kind.ordinal());
+                out.writeInt(byKey.size());
+                for (Map.Entry<Object, IntList> e : byKey.entrySet()) {
+                    switch (kind) {
+                        case TYPE -> out.writeByte((Integer) e.getKey());
+                        case RUN -> out.writeLong((Long) e.getKey());
+                        case REPO, BRANCH -> {
+                            byte[] key = Record.utf8((String) e.getKey());
+                            out.writeShort(key.length);
+                            out.write(key);
+                        }
+                    }
+                    out.writeInt(positions.get(kind.ordinal()).get(e.getKey()));
+                    out.writeInt(e.getValue().size());
+                }
+            }
+            out.flush();
+
+            byte[] data = bytes.toByteArray();
+            ByteBuffer.wrap(data).putInt(36, directoriesPosition);
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void post(Kind kind, Object key, int offset) {
+            if (key != null) {
+                postings.get(kind.ordinal()).computeIfAbsent(key, k -> new IntList()).add(offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.event.sink;
+
+import org.example.event.EventFormatter;
+import org.example.event.WorkflowEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the human-readable, pipe-delimited line format to stdout.
+ */
+public class ConsoleSink implements EventSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EventFormatter formatter;
+    private final OutputStream out;
+
+    /**
+     * @param includeRepo add a {@code repo=owner/name} field to every line, needed when
+     *                    events of several repositories are merged into one stream
+     */
+    public ConsoleSink(boolean includeRepo) {
+        this(includeRepo, false);
+    }
+
+    /**
+     * @param includeLag end every line with the detection lag, see {@link EventFormatter}
+     */
+    public ConsoleSink(boolean includeRepo, boolean includeLag) {
+        this(includeRepo, includeLag, new FileOutputStream(FileDescriptor.out));
+    }
+
+    public ConsoleSink(boolean includeRepo, OutputStream target) {
+        this(includeRepo, false, target);
+    }
+
+    public ConsoleSink(boolean includeRepo, boolean includeLag, OutputStream target) {
+        this.formatter = new EventFormatter(includeRepo, includeLag);
+        this.out = new BufferedOutputStream(target, BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(WorkflowEvent event) throws IOException {
+        int len = formatter.encodeLine(event);
+        out.write(formatter.bytes(), 0, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.event.sink;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.event.WorkflowEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Machine-readable JSON form of a {@link WorkflowEvent}, shared by the NDJSON, socket and
+ * webhook sinks and {@code gha-watch query --json}. Absent optional fields are omitted rather than written as {@code "-"}.
+ * When GitHub gave a timestamp for the change it is written as {@code source_ts}, together
+ * with the detection lag in {@code lag_ms}.
+ */
+public final class EventJson {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private EventJson() {
+    }
+
+    /**
+     * Returns the event as one JSON object followed by a newline.
+     */
+    public static byte[] toLine(WorkflowEvent event) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+        writeLine(buf, event);
+        return buf.toByteArray();
+    }
+
+    static void writeLine(OutputStream out, WorkflowEvent event) throws IOException {
+        try (JsonGenerator g = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            write(g, event);
+        }
+        out.write('\n');
+    }
+
+    static void write(JsonGenerator g, WorkflowEvent event) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("ts", ISO.format(event.getTimeStamp()));
+        g.writeStringField("type", event.getEventType().name());
+        g.writeStringField("repo", event.getRepo());
+        g.writeNumberField("run", event.getRunId());
+        Long jobId = event.jobIdOrNull();
+        if (jobId != null) {
+            g.writeNumberField("job", jobId);
+        }
+        Integer step = event.stepNumberOrNull();
+        if (step != null) {
+            g.writeNumberField("step", step);
+        }
+        writeOptional(g, "branch", event.branchOrNull());
+        writeOptional(g, "sha", event.shaShortOrNull());
+        writeOptional(g, "status", event.statusOrNull());
+        writeOptional(g, "msg", event.messageOrNull());
+        OffsetDateTime sourceTime = event.sourceTimeOrNull();
+        if (sourceTime != null) {
+            g.writeStringField("source_ts", ISO.format(sourceTime));
+            g.writeNumberField("lag_ms", event.detectionLagMillis());
+        }
+        g.writeEndObject();
+    }
+
+    private static void writeOptional(JsonGenerator g, String field, String value) throws IOException {
+        if (value != null) {
+            g.writeStringField(field, value);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.event.sink;
+
+import org.example.event.WorkflowEvent;
+
+import java.io.IOException;
+
+/**
+ * Destination for emitted events. {@link org.example.event.EventEmitter} calls
+ * {@link #write} for each event of a batch and {@link #flush} once after the batch;
+ * calls are never concurrent.
+ */
+public interface EventSink {
+
+    void write(WorkflowEvent event) throws IOException;
+
+    default void flush() throws IOException {
+    }
+
+    default void close() throws IOException {
+        flush();
+    }
+}
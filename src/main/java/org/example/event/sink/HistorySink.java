@@ -0,0 +1,35 @@
+package org.example.event.sink;
+
+import org.example.event.WorkflowEvent;
+import org.example.event.history.EventHistory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Keeps every event in an {@link EventHistory} so it can be queried later with
+ * {@code gha-watch query}.
+ */
+public class HistorySink implements EventSink {
+
+    private final EventHistory history;
+
+    public HistorySink(Path dir, long segmentBytes, long retentionMillis, long maxBytes) throws IOException {
+        this.history = new EventHistory(dir, segmentBytes, retentionMillis, maxBytes);
+    }
+
+    @Override
+    public void write(WorkflowEvent event) throws IOException {
+        history.append(event);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        history.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        history.close();
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.event.sink;
+
+import org.example.event.WorkflowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Appends one JSON object per line to a file. The file is rotated once it reaches
+ * {@code maxBytes} or is older than {@code rotateIntervalMillis}: it is renamed to
+ * {@code <name>-<yyyyMMdd-HHmmss-SSS>.<ext>} and a fresh file is started. Zero disables either
+ * trigger.
+ */
+public class NdjsonFileSink implements EventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(NdjsonFileSink.class);
+
+    private static final DateTimeFormatter ROTATED_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path file;
+    private final long maxBytes;
+    private final long rotateIntervalMillis;
+
+    private OutputStream out;
+    private long bytesWritten;
+    private long openedAtMillis;
+
+    public NdjsonFileSink(Path file, long maxBytes, long rotateIntervalMillis) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.rotateIntervalMillis = rotateIntervalMillis;
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    @Override
+    public void write(WorkflowEvent event) throws IOException {
+        if (shouldRotate()) {
+            rotate();
+        }
+
+        byte[] line = EventJson.toLine(event);
+        out.write(line);
+        bytesWritten += line.length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private boolean shouldRotate() {
+        if (bytesWritten == 0) {
+            return false;
+        }
+        return (maxBytes > 0 && bytesWritten >= maxBytes)
+                || (rotateIntervalMillis > 0 && System.currentTimeMillis() - openedAtMillis >= rotateIntervalMillis);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        Path rotated = file.resolveSibling(base + "-" + ROTATED_SUFFIX.format(LocalDateTime.now()) + ext);
+
+        Files.move(file, rotated, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Rotated event file to {}", rotated);
+
+        open();
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024);
+        bytesWritten = Files.size(file);
+        openedAtMillis = System.currentTimeMillis();
+    }
+}
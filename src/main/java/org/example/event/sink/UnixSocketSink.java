@@ -0,0 +1,113 @@
+package org.example.event.sink;
+
+import org.example.event.WorkflowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listens on a Unix domain socket and streams NDJSON events to every connected local
+ * client. Clients only receive events emitted after they connect. A client that cannot
+ * take a whole batch without blocking is disconnected, so a stalled reader never holds up
+ * the emitter.
+ */
+public class UnixSocketSink implements EventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(UnixSocketSink.class);
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final List<SocketChannel> clients = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private final Thread acceptor;
+
+    public UnixSocketSink(Path socketPath) throws IOException {
+        this.socketPath = socketPath;
+
+        Files.deleteIfExists(socketPath);
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(socketPath));
+
+        this.acceptor = new Thread(this::acceptLoop, "event-socket-accept");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+
+        log.info("Streaming events on unix socket {}", socketPath);
+    }
+
+    @Override
+    public void write(WorkflowEvent event) throws IOException {
+        if (!clients.isEmpty()) {
+            EventJson.writeLine(pending, event);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (pending.size() == 0) {
+            return;
+        }
+
+        ByteBuffer batch = ByteBuffer.wrap(pending.toByteArray());
+        pending.reset();
+
+        for (SocketChannel client : clients) {
+            ByteBuffer view = batch.duplicate();
+            try {
+                client.write(view);
+                if (view.hasRemaining()) {
+                    log.warn("Disconnecting slow event socket client");
+                    disconnect(client);
+                }
+            } catch (IOException e) {
+                log.debug("Event socket client went away: {}", e.getMessage());
+                disconnect(client);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        server.close();
+        for (SocketChannel client : clients) {
+            disconnect(client);
+        }
+        Files.deleteIfExists(socketPath);
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel client = server.accept();
+                client.configureBlocking(false);
+                clients.add(client);
+                log.info("Event socket client connected ({} total)", clients.size());
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    log.warn("Failed to accept event socket client: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void disconnect(SocketChannel client) {
+        clients.remove(client);
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+}
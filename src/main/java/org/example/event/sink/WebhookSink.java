@@ -0,0 +1,222 @@
+package org.example.event.sink;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.example.event.WorkflowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POSTs events as a JSON array to an HTTP endpoint. Events are sent once {@code batchSize}
+ * are pending, and at least every {@code flushIntervalMillis} otherwise. Connection errors
+ * and 5xx/429 responses are retried with exponential back-off; a batch that still fails is
+ * logged and dropped so a dead endpoint cannot grow memory without bound.
+ * <p>
+ * All network I/O and retry waits happen on the sink's own thread; {@link #write} only
+ * queues the event. While the endpoint is failing at most {@value #MAX_PENDING_BATCHES}
+ * batches are kept, and further events are dropped.
+ */
+public class WebhookSink implements EventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookSink.class);
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final int MAX_PENDING_BATCHES = 100;
+
+    private final String url;
+    private final int batchSize;
+    private final int maxRetries;
+    private final OkHttpClient httpClient;
+    private final ScheduledExecutorService timer;
+
+    private final List<WorkflowEvent> pending = new ArrayList<>();
+    private boolean sendQueued;
+    private long droppedSinceLastSend;
+
+    public WebhookSink(String url, int batchSize, long flushIntervalMillis, int maxRetries) {
+        this.url = url;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetries = maxRetries;
+        this.httpClient = new OkHttpClient.Builder()
+                .callTimeout(30, TimeUnit.SECONDS)
+                .build();
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "webhook-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleWithFixedDelay(this::sendPending, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(WorkflowEvent event) {
+        synchronized (pending) {
+            if (pending.size() >= batchSize * MAX_PENDING_BATCHES) {
+                if (droppedSinceLastSend++ == 0) {
+                    log.warn("Webhook {} is not keeping up; dropping events until it does", url);
+                }
+                return;
+            }
+            pending.add(event);
+            if (pending.size() < batchSize || sendQueued) {
+                return;
+            }
+            sendQueued = true;
+        }
+        try {
+            timer.execute(this::sendPending);
+        } catch (RejectedExecutionException e) {
+            log.debug("Webhook sink closed, {} left for close()", event.getEventType());
+        }
+    }
+
+    /**
+     * Sends what is still pending, waiting up to 30 seconds for the sink's thread.
+     */
+    @Override
+    public void close() {
+        try {
+            timer.execute(this::sendPending);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        timer.shutdown();
+
+        try {
+            if (!timer.awaitTermination(30, TimeUnit.SECONDS)) {
+                timer.shutdownNow();
+                synchronized (pending) {
+                    log.error("Dropping {} events, webhook {} did not accept them within 30s", pending.size(), url);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends everything pending, one batch at a time. Runs on the timer thread only.
+     */
+    private void sendPending() {
+        while (true) {
+            List<WorkflowEvent> batch;
+            synchronized (pending) {
+                sendQueued = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                List<WorkflowEvent> head = pending.subList(0, Math.min(batchSize, pending.size()));
+                batch = new ArrayList<>(head);
+                head.clear();
+            }
+            if (!send(batch)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code false} if the thread was interrupted, which stops sending.
+     */
+    private boolean send(List<WorkflowEvent> batch) {
+        byte[] body;
+        try {
+            body = encode(batch);
+        } catch (IOException e) {
+            log.error("Failed to encode {} events for webhook: {}", batch.size(), e.getMessage());
+            return true;
+        }
+
+        long delayMillis = 500;
+        for (int attempt = 0; ; attempt++) {
+            String failure = post(body);
+            if (failure == null) {
+                log.debug("Posted {} events to {}", batch.size(), url);
+                reportDropped();
+                return true;
+            }
+
+            if (attempt >= maxRetries) {
+                log.error("Dropping {} events after {} attempts to {}: {}", batch.size(), attempt + 1, url, failure);
+                return true;
+            }
+
+            log.warn("Webhook post failed ({}), retrying in {} ms", failure, delayMillis);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Dropping {} events, interrupted while retrying", batch.size());
+                return false;
+            }
+            delayMillis = Math.min(delayMillis * 2, 30_000);
+        }
+    }
+
+    private void reportDropped() {
+        long dropped;
+        synchronized (pending) {
+            dropped = droppedSinceLastSend;
+            droppedSinceLastSend = 0;
+        }
+        if (dropped > 0) {
+            log.warn("Webhook {} is keeping up again after {} events were dropped", url, dropped);
+        }
+    }
+
+    /**
+     * Returns {@code null} on success, otherwise a description of a retryable failure.
+     * Non-retryable 4xx responses are logged and treated as delivered.
+     */
+    private String post(byte[] body) {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(body, JSON))
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            int code = response.code();
+            if (response.isSuccessful()) {
+                return null;
+            }
+            if (code == 429 || code >= 500) {
+                return "HTTP " + code;
+            }
+            log.error("Webhook rejected events with HTTP {}, not retrying", code);
+            return null;
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    private byte[] encode(List<WorkflowEvent> batch) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256 * batch.size());
+        try (JsonGenerator g = FACTORY.createGenerator(buf, JsonEncoding.UTF8)) {
+            g.writeStartArray();
+            for (WorkflowEvent event : batch) {
+                EventJson.write(g, event);
+            }
+            g.writeEndArray();
+        }
+        return buf.toByteArray();
+    }
+}
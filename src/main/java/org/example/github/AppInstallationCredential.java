@@ -0,0 +1,208 @@
+package org.example.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.example.github.exception.GithubApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Installation access token of a GitHub App. The token is requested with a JWT signed by the
+ * app's private key and renewed shortly before its one-hour lifetime ends. Each installation
+ * has its own rate limit.
+ */
+public class AppInstallationCredential extends Credential {
+
+    private static final Logger log = LoggerFactory.getLogger(AppInstallationCredential.class);
+
+    private static final long REFRESH_BEFORE_EXPIRY_SECONDS = 300;
+
+    /**
+     * How long a failed refresh is not retried, so every request in the meantime fails over
+     * to another credential without a round trip.
+     */
+    private static final long REFRESH_RETRY_SECONDS = 60;
+
+    private final long appId;
+    private final long installationId;
+    private final PrivateKey privateKey;
+    private final String apiUrl;
+    private final OkHttpClient httpClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private String token;
+    private Instant expiresAt = Instant.EPOCH;
+    private int consecutiveUnauthorized;
+    private Instant refreshFailedUntil = Instant.EPOCH;
+
+    public AppInstallationCredential(long appId, long installationId, PrivateKey privateKey, String apiUrl) {
+        super("app " + appId + " installation " + installationId);
+        this.appId = appId;
+        this.installationId = installationId;
+        this.privateKey = privateKey;
+        this.apiUrl = GitHubClient.stripTrailingSlash(apiUrl);
+        this.httpClient = new OkHttpClient.Builder()
+                .callTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public synchronized String token() {
+        Instant now = Instant.now();
+        boolean due = token == null || now.isAfter(expiresAt.minusSeconds(REFRESH_BEFORE_EXPIRY_SECONDS));
+        if (due && !now.isBefore(refreshFailedUntil)) {
+            try {
+                refresh();
+            } catch (GithubApiException e) {
+                refreshFailedUntil = now.plusSeconds(REFRESH_RETRY_SECONDS);
+                if (token == null || !now.isBefore(expiresAt)) {
+                    log.warn("{}; not retried before {}", e.getMessage(), refreshFailedUntil);
+                    throw e;
+                }
+                log.warn("{}; keeping the current token until {}", e.getMessage(), expiresAt);
+            }
+        }
+        if (token == null || !now.isBefore(expiresAt)) {
+            throw new GithubApiException("No valid token for " + getName() + " before " + refreshFailedUntil, 0);
+        }
+        return token;
+    }
+
+    /**
+     * A 401 usually means the token expired early; it is renewed once before the
+     * installation is quarantined.
+     */
+    @Override
+    public synchronized void onUnauthorized() {
+        token = null;
+        if (++consecutiveUnauthorized >= 2) {
+            consecutiveUnauthorized = 0;
+            super.onUnauthorized();
+        }
+    }
+
+    private void refresh() {
+        Request request = new Request.Builder()
+                .url(apiUrl + "/app/installations/" + installationId + "/access_tokens")
+                .header("Authorization", "Bearer " + jwt())
+                .header("Accept", "application/vnd.github+json")
+                .header("X-GitHub-Api-Version", "2022-11-28")
+                .post(RequestBody.create(new byte[0]))
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                if (response.code() == 401 || response.code() == 404) {
+                    quarantine(REFRESH_RETRY_SECONDS * 1000L);
+                }
+                throw new GithubApiException("Could not get a token for " + getName(), response.code());
+            }
+
+            JsonNode body = mapper.readTree(response.body().byteStream());
+            token = body.path("token").asText();
+            expiresAt = Instant.parse(body.path("expires_at").asText());
+            consecutiveUnauthorized = 0;
+            log.info("Obtained installation token for {}, valid until {}", getName(), expiresAt);
+        } catch (IOException e) {
+            throw new GithubApiException("Network error while getting a token for " + getName() + ": " + e.getMessage(), 0);
+        }
+    }
+
+    /**
+     * App JWT as described by GitHub: RS256, issued a minute in the past against clock drift,
+     * valid for nine minutes.
+     */
+    private String jwt() {
+        long now = Instant.now().getEpochSecond();
+        String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\"}";
+        String payload = "{\"iat\":" + (now - 60) + ",\"exp\":" + (now + 540) + ",\"iss\":\"" + appId + "\"}";
+
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = b64.encodeToString(header.getBytes(StandardCharsets.UTF_8))
+                + "." + b64.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + b64.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign app JWT", e);
+        }
+    }
+
+    /**
+     * Reads an RSA private key from a PEM file, either PKCS#1 as downloaded from GitHub or
+     * PKCS#8.
+     */
+    public static PrivateKey readPrivateKey(Path pemFile) throws IOException {
+        String pem = Files.readString(pemFile);
+        boolean pkcs1 = pem.contains("BEGIN RSA PRIVATE KEY");
+        String base64 = pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+
+        byte[] der = Base64.getDecoder().decode(base64);
+        if (pkcs1) {
+            der = pkcs1ToPkcs8(der);
+        }
+
+        try {
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(der));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Not an RSA private key: " + pemFile, e);
+        }
+    }
+
+    /**
+     * Wraps a PKCS#1 RSAPrivateKey in the PKCS#8 PrivateKeyInfo structure the JDK reads.
+     */
+    private static byte[] pkcs1ToPkcs8(byte[] pkcs1) {
+        byte[] version = {0x02, 0x01, 0x00};
+        byte[] rsaAlgorithm = {
+                0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86,
+                (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00
+        };
+
+        ByteArrayOutputStream info = new ByteArrayOutputStream();
+        info.writeBytes(version);
+        info.writeBytes(rsaAlgorithm);
+        info.writeBytes(der(0x04, pkcs1));
+        return der(0x30, info.toByteArray());
+    }
+
+    private static byte[] der(int tag, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 6);
+        out.write(tag);
+
+        int length = content.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int bytes = length > 0xFFFF ? 3 : length > 0xFF ? 2 : 1;
+            out.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write(length >>> (8 * i));
+            }
+        }
+
+        out.writeBytes(content);
+        return out.toByteArray();
+    }
+}
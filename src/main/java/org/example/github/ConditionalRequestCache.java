@@ -0,0 +1,74 @@
+package org.example.github;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the ETag and parsed body of recent GET responses, keyed by URL, so the
+ * client can send {@code If-None-Match} and reuse the parsed object on a 304.
+ * GitHub does not count 304 responses against the rate limit. Least recently used
+ * entries are dropped once {@code maxEntries} is reached.
+ */
+public class ConditionalRequestCache {
+
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ConditionalRequestCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    public synchronized void put(String url, String etag, Object value) {
+        entries.put(url, new Entry(etag, value));
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public static final class Entry {
+
+        private final String etag;
+        private final Object value;
+
+        private Entry(String etag, Object value) {
+            this.etag = etag;
+            this.value = value;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.github;
+
+/**
+ * One way of authenticating to the API, with its own primary rate limit. A
+ * {@link TokenPool} picks among several of these per request.
+ */
+public abstract class Credential {
+
+    private final String name;
+    /** Quarantine after the first 401; it doubles with each further one up to the maximum. */
+    private static final long FIRST_QUARANTINE_MILLIS = 60_000;
+    private static final long MAX_QUARANTINE_MILLIS = 3_600_000;
+
+    private final RateLimitTracker rateLimit = new RateLimitTracker();
+    private volatile long quarantinedUntilMillis;
+    private int quarantines;
+
+    protected Credential(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Bearer token to send with the next request. May block to obtain or refresh it.
+     */
+    public abstract String token();
+
+    /**
+     * Called when GitHub answered 401 to a request made with this credential. A 401 can be
+     * transient, so by default the credential is only quarantined: for a minute after the first
+     * rejection, twice as long after each further one, up to an hour.
+     */
+    public synchronized void onUnauthorized() {
+        quarantine(Math.min(MAX_QUARANTINE_MILLIS, FIRST_QUARANTINE_MILLIS << Math.min(quarantines++, 6)));
+    }
+
+    /**
+     * Called when GitHub accepted a request made with this credential.
+     */
+    public synchronized void onAuthorized() {
+        quarantines = 0;
+    }
+
+    protected void quarantine(long millis) {
+        quarantinedUntilMillis = Math.max(quarantinedUntilMillis, System.currentTimeMillis() + millis);
+    }
+
+    /**
+     * Whether the credential is set aside after being rejected. {@link TokenPool} still uses it
+     * when no other credential is left.
+     */
+    public boolean isQuarantined() {
+        return millisUntilUsable() > 0;
+    }
+
+    public long millisUntilUsable() {
+        return Math.max(0, quarantinedUntilMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * Whether the primary limit is used up until its reset.
+     */
+    public boolean isExhausted() {
+        return rateLimit.isKnown() && rateLimit.getRemaining() <= 0 && rateLimit.millisUntilReset() > 0;
+    }
+
+    public RateLimitTracker getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Name safe to log; never the token itself.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * A personal access token or any other fixed token.
+     */
+    public static Credential ofToken(String name, String token) {
+        return new Credential(name) {
+            @Override
+            public String token() {
+                return token;
+            }
+        };
+    }
+}
@@ -2,7 +2,9 @@ package org.example.github;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -10,87 +12,344 @@ import okhttp3.ResponseBody;
 import org.example.github.exception.GithubApiException;
 import org.example.github.exception.RateLimitException;
 import org.example.github.model.JobsResponse;
+import org.example.github.model.WorkflowRun;
 import org.example.github.model.WorkflowRunsResponse;
+import org.example.metrics.Counter;
+import org.example.metrics.Gauge;
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GitHubClient {
 
     private static final Logger log = LoggerFactory.getLogger(GitHubClient.class);
 
-    private static final String BASE_URL = "https://api.github.com";
+    public static final String DEFAULT_BASE_URL = "https://api.github.com";
 
+    private static final int DEFAULT_CACHE_ENTRIES = 4096;
+
+    private static final DateTimeFormatter CREATED_FILTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private static final Histogram REQUEST_SECONDS = Metrics.histogram("ghawatch_github_request_seconds",
+            "Latency of GitHub API requests", Metrics.LATENCY_BUCKETS, "endpoint");
+    private static final Counter RESPONSES = Metrics.counter("ghawatch_github_responses_total",
+            "GitHub API responses by endpoint and HTTP status; status 0 is a network error", "endpoint", "status");
+    private static final Gauge CREDENTIAL_REMAINING = Metrics.gauge("ghawatch_github_rate_limit_remaining",
+            "Remaining primary rate limit per credential", "credential");
+    private static final Gauge QUOTA_REMAINING = Metrics.gauge("ghawatch_github_quota_remaining",
+            "Remaining primary rate limit summed over all usable credentials");
+    private static final Gauge QUOTA_LIMIT = Metrics.gauge("ghawatch_github_quota_limit",
+            "Primary rate limit summed over all usable credentials");
+    private static final Counter CACHE = Metrics.counter("ghawatch_github_etag_cache_total",
+            "Successful GETs answered from the ETag cache (hit, a 304) or with a full body (miss)", "result");
+    private static final Counter.Child CACHE_HITS = CACHE.labels("hit");
+    private static final Counter.Child CACHE_MISSES = CACHE.labels("miss");
+
+    /**
+     * Largest page size GitHub allows for runs and jobs.
+     */
+    public static final int PER_PAGE = 100;
+
+    /**
+     * Most runs GitHub returns for a listing filtered by creation time, however many match.
+     */
+    public static final int FILTERED_RESULT_LIMIT = 1000;
+
+    private final String baseUrl;
     private final OkHttpClient httpClient;
     private final ObjectMapper mapper;
-    private final String token;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final TokenPool tokens;
+    private final ConditionalRequestCache cache;
 
     public GitHubClient(String token) {
-        this.token = token;
+        this(TokenPool.of(token));
+    }
+
+    public GitHubClient(TokenPool tokens) {
+        this(tokens, DEFAULT_BASE_URL, List.of());
+    }
+
+    /**
+     * @param baseUrl      API root, e.g. {@code https://ghe.example.com/api/v3} for GitHub
+     *                     Enterprise Server or a local simulator
+     * @param interceptors application interceptors added to the HTTP client, for example a
+     *                     {@link org.example.github.traffic.TrafficRecorder}
+     */
+    public GitHubClient(TokenPool tokens, String baseUrl, List<Interceptor> interceptors) {
+        this.baseUrl = stripTrailingSlash(baseUrl);
+        this.tokens = tokens;
+        this.cache = new ConditionalRequestCache(DEFAULT_CACHE_ENTRIES);
 
-        this.httpClient = new OkHttpClient.Builder()
-                .retryOnConnectionFailure(true)
-                .build();
+        OkHttpClient.Builder http = new OkHttpClient.Builder()
+                .retryOnConnectionFailure(true);
+        interceptors.forEach(http::addInterceptor);
+        this.httpClient = http.build();
 
         this.mapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        for (Credential credential : tokens.getCredentials()) {
+            CREDENTIAL_REMAINING.labels(credential.getName()).setSupplier(() -> credential.getRateLimit().getRemaining());
+        }
+        QUOTA_REMAINING.labels().setSupplier(() -> tokens.getRateLimit().getRemaining());
+        QUOTA_LIMIT.labels().setSupplier(() -> tokens.getRateLimit().getLimit());
     }
 
     public WorkflowRunsResponse listWorkflowRuns(String owner, String repo) {
-        String url = BASE_URL + "/repos/" + owner + "/" + repo + "/actions/runs?per_page=50";
-        return executeGet(url, WorkflowRunsResponse.class);
+        return listWorkflowRunsPage(owner, repo, 1);
+    }
+
+    public WorkflowRunsResponse listWorkflowRunsPage(String owner, String repo, int page) {
+        return listWorkflowRunsPage(owner, repo, page, null);
+    }
+
+    /**
+     * @param createdSince when set, only runs created at or after it, to the second
+     */
+    public WorkflowRunsResponse listWorkflowRunsPage(String owner, String repo, int page, OffsetDateTime createdSince) {
+        String url = baseUrl + "/repos/" + owner + "/" + repo + "/actions/runs?per_page=" + PER_PAGE + "&page=" + page;
+        if (createdSince != null) {
+            url += "&created=%3E%3D" + CREATED_FILTER.format(createdSince.withOffsetSameInstant(ZoneOffset.UTC));
+        }
+        return executeGet(url, WorkflowRunsResponse.class, "runs");
+    }
+
+    public List<WorkflowRun> listWorkflowRunsSince(String owner, String repo, long stopAtRunId, int maxPages) {
+        return listWorkflowRunsSince(owner, repo, stopAtRunId, null, maxPages);
+    }
+
+    /**
+     * Lists runs newest first, following pages until one reaches {@code stopAtRunId} or
+     * {@code maxPages} pages were read. Pages are fetched one after another because only the
+     * previous page tells whether the next one is still needed.
+     * <p>
+     * With {@code createdSince} only runs created since then are listed, and every page up to
+     * their {@code total_count} is read regardless of {@code stopAtRunId} and {@code maxPages},
+     * so the result holds every such run, known or not. GitHub serves at most
+     * {@link #FILTERED_RESULT_LIMIT} of them, the newest.
+     */
+    public List<WorkflowRun> listWorkflowRunsSince(String owner, String repo, long stopAtRunId,
+                                                   OffsetDateTime createdSince, int maxPages) {
+        List<WorkflowRun> runs = new ArrayList<>();
+        int pageLimit = createdSince == null ? maxPages : pageCount(FILTERED_RESULT_LIMIT);
+
+        for (int page = 1; page <= pageLimit; page++) {
+            WorkflowRunsResponse response = listWorkflowRunsPage(owner, repo, page, createdSince);
+            List<WorkflowRun> pageRuns = response == null ? null : response.getWorkflowRuns();
+            if (pageRuns == null || pageRuns.isEmpty()) {
+                break;
+            }
+
+            runs.addAll(pageRuns);
+
+            boolean reachedKnownRuns = createdSince == null && pageRuns.stream().anyMatch(r -> r.getId() <= stopAtRunId);
+            if (reachedKnownRuns || pageRuns.size() < PER_PAGE || page >= pageCount(response.getTotalCount())) {
+                break;
+            }
+            if (page == pageLimit) {
+                if (createdSince == null) {
+                    log.warn("More than {} new runs in {}/{} since the last poll; older ones are skipped",
+                            maxPages * PER_PAGE, owner, repo);
+                } else {
+                    log.warn("{} runs created in {}/{} since {} but GitHub lists only the newest {}; older ones are not discovered",
+                            response.getTotalCount(), owner, repo, createdSince, FILTERED_RESULT_LIMIT);
+                }
+            }
+        }
+
+        return runs;
+    }
+
+    public WorkflowRun getWorkflowRun(String owner, String repo, long runId) {
+        String url = baseUrl + "/repos/" + owner + "/" + repo + "/actions/runs/" + runId;
+        return executeGet(url, WorkflowRun.class, "run");
     }
 
     public JobsResponse listJobs(String owner, String repo, long runId) {
-        String url = BASE_URL + "/repos/" + owner + "/" + repo + "/actions/runs/" + runId + "/jobs?per_page=50";
-        return executeGet(url, JobsResponse.class);
+        return listJobsPage(owner, repo, runId, 1);
+    }
+
+    public JobsResponse listJobsPage(String owner, String repo, long runId, int page) {
+        String url = baseUrl + "/repos/" + owner + "/" + repo + "/actions/runs/" + runId + "/jobs?per_page=" + PER_PAGE + "&page=" + page;
+        return executeGet(url, JobsResponse.class, "jobs");
+    }
+
+    /**
+     * Number of pages needed for {@code totalCount} items at the page size this client uses.
+     */
+    public static int pageCount(int totalCount) {
+        return Math.max(1, (totalCount + PER_PAGE - 1) / PER_PAGE);
     }
 
-    private <T> T executeGet(String url, Class<T> type) {
-        Request request = new Request.Builder()
-                .url(url)
-                .header("Authorization", "Bearer " + token)
-                .header("Accept", "application/vnd.github+json")
-                .header("X-GitHub-Api-Version", "2022-11-28")
-                .build();
+    /**
+     * Combined rate limit of all credentials in the pool.
+     */
+    public RateLimitTracker getRateLimit() {
+        return tokens.getRateLimit();
+    }
 
-        log.debug("GET {}", url);
+    public String getBaseUrl() {
+        return baseUrl;
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
+    public TokenPool getTokens() {
+        return tokens;
+    }
+
+    public long getCacheHits() {
+        return cache.getHitCount();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMissCount();
+    }
+
+    private <T> T executeGet(String url, Class<T> type, String endpoint) {
+        ConditionalRequestCache.Entry cached = cache.get(url);
+        if (cached != null && !type.isInstance(cached.getValue())) {
+            cached = null;
+        }
 
-            if (response.code() == 403 && isRateLimit(response)) {
-                long wait = computeRateLimitWaitMillis(response);
-                throw new RateLimitException(wait);
+        // A request rejected for its credential is retried with the next one in the pool.
+        Set<Credential> tried = new HashSet<>();
+        Set<Credential> renewed = new HashSet<>();
+        while (true) {
+            Credential credential = tokens.select(tried);
+            tried.add(credential);
+
+            String token;
+            try {
+                token = credential.token();
+            } catch (GithubApiException e) {
+                if (tried.size() >= tokens.size()) {
+                    throw e;
+                }
+                log.debug("{}; trying another credential", e.getMessage());
+                continue;
             }
 
-            if (!response.isSuccessful()) {
-                String body = safeBody(response);
-                throw new GithubApiException(
-                        "GitHub API error: " + body,
-                        response.code()
-                );
+            Request.Builder builder = new Request.Builder()
+                    .url(url)
+                    .header("Authorization", "Bearer " + token)
+                    .header("Accept", "application/vnd.github+json")
+                    .header("X-GitHub-Api-Version", "2022-11-28");
+
+            if (cached != null) {
+                builder.header("If-None-Match", cached.getEtag());
             }
 
-            String body = safeBody(response);
-            return mapper.readValue(body, type);
+            Request request = builder.build();
+
+            log.debug("GET {} with {}", url, credential);
+
+            long start = System.nanoTime();
+            try (Response response = httpClient.newCall(request).execute()) {
+
+                REQUEST_SECONDS.labels(endpoint).observeSince(start);
+                RESPONSES.labels(endpoint, Integer.toString(response.code())).inc();
+                credential.getRateLimit().update(response);
+                if (response.code() != 401) {
+                    credential.onAuthorized();
+                }
+
+                if (response.code() == 304 && cached != null) {
+                    cache.recordHit();
+                    CACHE_HITS.inc();
+                    log.debug("304 Not Modified {}", url);
+                    return type.cast(cached.getValue());
+                }
+
+                if (response.code() == 401) {
+                    tokens.reportUnauthorized(credential);
+                    if (!credential.isQuarantined() && renewed.add(credential)) {
+                        // The credential renews its token rather than giving up; try it once more.
+                        tried.remove(credential);
+                        continue;
+                    }
+                    if (tried.size() < tokens.size()) {
+                        continue;
+                    }
+                }
+
+                if ((response.code() == 403 || response.code() == 429) && isRateLimit(response)) {
+                    if (tried.size() < tokens.size()) {
+                        log.debug("{} is rate limited, trying another credential", credential);
+                        continue;
+                    }
+                    long wait = computeRateLimitWaitMillis(response);
+                    throw new RateLimitException(wait);
+                }
 
-        } catch (IOException e) {
-            throw new GithubApiException("Network error: " + e.getMessage(), 0);
+                if (!response.isSuccessful()) {
+                    String body = safeBody(response);
+                    throw new GithubApiException(
+                            "GitHub API error: " + body,
+                            response.code()
+                    );
+                }
+
+                T value = readBody(response, type);
+
+                cache.recordMiss();
+                CACHE_MISSES.inc();
+                String etag = response.header("ETag");
+                if (etag != null) {
+                    cache.put(url, etag, value);
+                }
+
+                return value;
+
+            } catch (IOException e) {
+                RESPONSES.labels(endpoint, "0").inc();
+                throw new GithubApiException("Network error: " + e.getMessage(), 0);
+            }
         }
     }
 
 
+    /**
+     * Distinguishes rate limiting from other 403/429s: an exhausted primary limit, a
+     * secondary limit with {@code Retry-After}, or a body mentioning a rate limit. The body is
+     * peeked so it can still be read for the error message.
+     */
     private boolean isRateLimit(Response response) throws IOException {
-        String body = safeBody(response);
-        return body.contains("rate limit exceeded");
+        if (response.header("Retry-After") != null || "0".equals(response.header("X-RateLimit-Remaining"))) {
+            return true;
+        }
+        String body = response.peekBody(4096).string();
+        return body.contains("rate limit");
     }
 
     private long computeRateLimitWaitMillis(Response response) {
+        // Secondary limits tell us exactly how long to wait.
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                return 60_000;
+            }
+        }
+
         String resetHeader = response.header("X-RateLimit-Reset");
 
-        if (resetHeader == null) {
+        // GitHub asks to wait at least a minute after a secondary limit without Retry-After.
+        if (resetHeader == null || !"0".equals(response.header("X-RateLimit-Remaining"))) {
             return 60_000; // fallback 60 sec
         }
 
@@ -102,6 +361,27 @@ public class GitHubClient {
         }
     }
 
+    /**
+     * Decodes the body straight from the response stream, so a large jobs page is never held
+     * as a byte array or string. Properties the models do not declare are skipped by the
+     * parser without being materialized.
+     */
+    private <T> T readBody(Response response, Class<T> type) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return null;
+        }
+
+        ObjectReader reader = readers.computeIfAbsent(type, mapper::readerFor);
+        try (InputStream in = body.byteStream()) {
+            return reader.readValue(in);
+        }
+    }
+
+    static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
     private String safeBody(Response response) throws IOException {
         ResponseBody body = response.body();
         return body != null ? body.string() : "";
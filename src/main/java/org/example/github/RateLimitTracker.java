@@ -0,0 +1,71 @@
+package org.example.github;
+
+import okhttp3.Response;
+
+/**
+ * Latest primary rate-limit figures reported by GitHub in the {@code X-RateLimit-*} headers.
+ * Updated from every response, including 304s. Until the first response arrives the limit
+ * is unknown and {@link #isKnown()} returns {@code false}.
+ */
+public class RateLimitTracker {
+
+    private volatile int limit = -1;
+    private volatile int remaining = -1;
+    private volatile long resetEpochSeconds;
+
+    public void update(Response response) {
+        Integer newLimit = parseInt(response.header("X-RateLimit-Limit"));
+        Integer newRemaining = parseInt(response.header("X-RateLimit-Remaining"));
+        Long newReset = parseLong(response.header("X-RateLimit-Reset"));
+
+        if (newLimit == null || newRemaining == null || newReset == null) {
+            return;
+        }
+
+        synchronized (this) {
+            // Responses of concurrent requests can arrive out of order; within one window the
+            // lowest remaining count is the most recent.
+            if (newReset > resetEpochSeconds || newRemaining < remaining || remaining < 0) {
+                limit = newLimit;
+                remaining = newRemaining;
+                resetEpochSeconds = newReset;
+            }
+        }
+    }
+
+    public boolean isKnown() {
+        return limit >= 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getRemaining() {
+        return remaining;
+    }
+
+    public long getResetEpochSeconds() {
+        return resetEpochSeconds;
+    }
+
+    public long millisUntilReset() {
+        return Math.max(0, resetEpochSeconds * 1000 - System.currentTimeMillis());
+    }
+
+    private static Integer parseInt(String value) {
+        Long parsed = parseLong(value);
+        return parsed == null ? null : parsed.intValue();
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.github;
+
+import org.example.github.exception.GithubApiException;
+import org.example.github.exception.RateLimitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Credentials a {@link GitHubClient} spreads its requests over. Every request goes to the
+ * usable credential with the most remaining quota; exhausted ones sit out until their reset
+ * and rejected ones while they are quarantined. A quarantined credential is still used when
+ * nothing else is left, so a pool of one token keeps retrying as it would without the pool.
+ * {@link #getRateLimit()} sums the quota of all usable credentials, so the poll budget paces
+ * against the whole pool.
+ */
+public class TokenPool {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenPool.class);
+
+    private final List<Credential> credentials;
+    private final RateLimitTracker aggregate = new AggregateRateLimit();
+
+    public TokenPool(List<Credential> credentials) {
+        if (credentials.isEmpty()) {
+            throw new IllegalArgumentException("At least one credential is required");
+        }
+        this.credentials = List.copyOf(credentials);
+    }
+
+    public static TokenPool of(String token) {
+        return new TokenPool(List.of(Credential.ofToken("token", token)));
+    }
+
+    /**
+     * Picks the credential for the next request, ignoring {@code exclude}.
+     *
+     * @throws RateLimitException when every remaining credential is exhausted, with the time
+     *                            until the first of them resets
+     * @throws GithubApiException when every credential is excluded
+     */
+    public Credential select(Set<Credential> exclude) {
+        Credential best = null;
+        int bestRemaining = Integer.MIN_VALUE;
+        long firstReset = Long.MAX_VALUE;
+        Credential firstReleased = null;
+
+        for (Credential credential : credentials) {
+            if (exclude.contains(credential)) {
+                continue;
+            }
+            if (credential.isExhausted()) {
+                firstReset = Math.min(firstReset, credential.getRateLimit().millisUntilReset());
+                continue;
+            }
+            if (credential.isQuarantined()) {
+                if (firstReleased == null || credential.millisUntilUsable() < firstReleased.millisUntilUsable()) {
+                    firstReleased = credential;
+                }
+                continue;
+            }
+
+            // A credential that has not answered yet is assumed to have its full quota.
+            RateLimitTracker rateLimit = credential.getRateLimit();
+            int remaining = rateLimit.isKnown() ? rateLimit.getRemaining() : Integer.MAX_VALUE;
+            if (remaining > bestRemaining) {
+                best = credential;
+                bestRemaining = remaining;
+            }
+        }
+
+        if (best != null) {
+            return best;
+        }
+        if (firstReleased != null) {
+            log.debug("Only quarantined credentials left, using {}", firstReleased);
+            return firstReleased;
+        }
+        if (firstReset != Long.MAX_VALUE) {
+            throw new RateLimitException(firstReset);
+        }
+        throw new GithubApiException("No usable GitHub credential left", 401);
+    }
+
+    public void reportUnauthorized(Credential credential) {
+        credential.onUnauthorized();
+        if (credential.isQuarantined()) {
+            log.warn("GitHub rejected {}; it is only used as a last resort for the next {} s ({} of {} credentials usable)",
+                    credential.getName(), credential.millisUntilUsable() / 1000, usableCount(), credentials.size());
+        }
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    public int usableCount() {
+        return (int) credentials.stream().filter(c -> !c.isQuarantined()).count();
+    }
+
+    public RateLimitTracker getRateLimit() {
+        return aggregate;
+    }
+
+    public List<Credential> getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * Sum of the limits of all credentials that are not quarantined. The reset time is the latest
+     * one among them, so budgets computed from it stay on the safe side.
+     */
+    private class AggregateRateLimit extends RateLimitTracker {
+
+        @Override
+        public boolean isKnown() {
+            return credentials.stream().anyMatch(c -> !c.isQuarantined() && c.getRateLimit().isKnown());
+        }
+
+        @Override
+        public int getLimit() {
+            return sum(true);
+        }
+
+        @Override
+        public int getRemaining() {
+            return sum(false);
+        }
+
+        @Override
+        public long getResetEpochSeconds() {
+            long reset = 0;
+            for (Credential credential : credentials) {
+                if (!credential.isQuarantined() && credential.getRateLimit().isKnown()) {
+                    reset = Math.max(reset, credential.getRateLimit().getResetEpochSeconds());
+                }
+            }
+            return reset;
+        }
+
+        @Override
+        public long millisUntilReset() {
+            return Math.max(0, getResetEpochSeconds() * 1000 - System.currentTimeMillis());
+        }
+
+        private int sum(boolean limit) {
+            if (!isKnown()) {
+                return -1;
+            }
+            int total = 0;
+            for (Credential credential : credentials) {
+                RateLimitTracker rateLimit = credential.getRateLimit();
+                if (!credential.isQuarantined() && rateLimit.isKnown()) {
+                    total += limit ? rateLimit.getLimit() : rateLimit.getRemaining();
+                }
+            }
+            return total;
+        }
+    }
+}
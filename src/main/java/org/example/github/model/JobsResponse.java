@@ -8,6 +8,9 @@ import java.util.List;
 @Getter
 public class JobsResponse {
 
+    @JsonProperty("total_count")
+    private int totalCount;
+
     @JsonProperty("jobs")
     private List<Job> jobs;
 }
@@ -0,0 +1,20 @@
+package org.example.github.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Job as delivered by a {@code workflow_job} webhook, which also carries its run.
+ */
+@Getter
+public class WorkflowJob extends Job {
+
+    @JsonProperty("run_id")
+    private long runId;
+
+    @JsonProperty("head_branch")
+    private String headBranch;
+
+    @JsonProperty("head_sha")
+    private String headSha;
+}
@@ -3,6 +3,8 @@ package org.example.github.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
+import java.time.OffsetDateTime;
+
 @Getter
 public class WorkflowRun {
 
@@ -19,4 +21,16 @@ public class WorkflowRun {
 
     @JsonProperty("run_number")
     private int runNumber;
+
+    @JsonProperty("created_at")
+    private OffsetDateTime createdAt;
+
+    @JsonProperty("run_started_at")
+    private OffsetDateTime runStartedAt;
+
+    /**
+     * Last change of the run; for a completed run, when it completed.
+     */
+    @JsonProperty("updated_at")
+    private OffsetDateTime updatedAt;
 }
@@ -8,6 +8,9 @@ import java.util.List;
 @Getter
 public class WorkflowRunsResponse {
 
+    @JsonProperty("total_count")
+    private int totalCount;
+
     @JsonProperty("workflow_runs")
     private List<WorkflowRun> workflowRuns;
 }
@@ -0,0 +1,31 @@
+package org.example.github.traffic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * One GitHub API response as stored in a traffic archive: one JSON object per line of a
+ * gzip file. Only the headers the client reads are kept and no request header is stored,
+ * so an archive never contains a token. A 304 is stored as the full response it stood for.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecordedExchange {
+
+    /** Epoch millis at which the response arrived. */
+    private final long at;
+    private final long latencyMillis;
+    /** Path and query, without scheme and host. */
+    private final String path;
+    private final int status;
+    private final Map<String, String> headers;
+    private final String body;
+
+    public String header(String name) {
+        return headers == null ? null : headers.get(name);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.github.traffic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OkHttp interceptor that appends every GET response to a traffic archive for
+ * {@link TrafficReplayer}. Bodies are buffered so they can be written and still handed to the
+ * client. A 304 is written as the last full response seen for its URL, which keeps the archive
+ * replayable without the conditional cache of the recording process.
+ * <p>
+ * Each record is flushed through the gzip stream, so an archive cut short by a crash is still
+ * readable up to its last record.
+ */
+public class TrafficRecorder implements Interceptor, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficRecorder.class);
+
+    /** Response headers the client reads; everything else is dropped. */
+    static final List<String> KEPT_HEADERS = List.of("Content-Type", "ETag", "Retry-After",
+            "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset");
+
+    private static final int MAX_REMEMBERED_BODIES = 4096;
+
+    private final Path file;
+    private final ObjectWriter writer = new ObjectMapper().writerFor(RecordedExchange.class);
+    private final Map<String, RecordedExchange> lastFullResponse;
+    private OutputStream out;
+    private long recorded;
+
+    public TrafficRecorder(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file), 8192, true));
+        this.lastFullResponse = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecordedExchange> eldest) {
+                return size() > MAX_REMEMBERED_BODIES;
+            }
+        };
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (!"GET".equals(chain.request().method())) {
+            return chain.proceed(chain.request());
+        }
+
+        long start = System.nanoTime();
+        Response response = chain.proceed(chain.request());
+        long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+
+        ResponseBody body = response.body();
+        byte[] bytes = body == null ? new byte[0] : body.bytes();
+        MediaType contentType = body == null ? null : body.contentType();
+
+        record(pathOf(response.request().url()), response, bytes, latencyMillis);
+
+        return response.newBuilder()
+                .body(ResponseBody.create(bytes, contentType))
+                .build();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+            log.info("Recorded {} GitHub responses to {}", recorded, file);
+        } catch (IOException e) {
+            log.warn("Failed to close traffic archive {}: {}", file, e.getMessage());
+        }
+        out = null;
+    }
+
+    private synchronized void record(String path, Response response, byte[] bytes, long latencyMillis) {
+        if (out == null) {
+            return;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : KEPT_HEADERS) {
+            String value = response.header(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+
+        int status = response.code();
+        String body = new String(bytes, StandardCharsets.UTF_8);
+        if (status == 304) {
+            RecordedExchange full = lastFullResponse.get(path);
+            if (full == null) {
+                log.debug("Not recording 304 for {}: no earlier response in this archive", path);
+                return;
+            }
+            // Keep the new rate-limit figures but the body and ETag the 304 confirmed.
+            Map<String, String> merged = new LinkedHashMap<>(full.getHeaders());
+            merged.putAll(headers);
+            headers = merged;
+            status = full.getStatus();
+            body = full.getBody();
+        }
+
+        RecordedExchange exchange = new RecordedExchange(System.currentTimeMillis(), latencyMillis, path, status, headers, body);
+        if (status == 200) {
+            lastFullResponse.put(path, exchange);
+        }
+
+        try {
+            out.write(writer.writeValueAsBytes(exchange));
+            out.write('\n');
+            out.flush();
+            recorded++;
+        } catch (IOException e) {
+            log.error("Failed to record response for {}; recording stopped", path, e);
+            close();
+        }
+    }
+
+    static String pathOf(HttpUrl url) {
+        String query = url.encodedQuery();
+        return query == null ? url.encodedPath() : url.encodedPath() + "?" + query;
+    }
+}
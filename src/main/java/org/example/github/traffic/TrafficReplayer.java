@@ -0,0 +1,197 @@
+package org.example.github.traffic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * OkHttp interceptor that answers GETs from a traffic archive written by
+ * {@link TrafficRecorder} instead of the network, so the monitor can be run against recorded
+ * production traffic offline.
+ * <p>
+ * With a positive {@code speed} the recording is replayed on a clock that starts at the first
+ * request and runs {@code speed} times faster than the recording: each URL is answered with the
+ * last response recorded for it up to that point, after the recorded latency divided by
+ * {@code speed}. {@code X-RateLimit-Reset} is moved onto the same clock. With a speed of 0 each
+ * URL steps through its responses one request at a time without waiting, which makes a replay
+ * deterministic. Either way the last response of a URL is repeated once the recording runs
+ * out, and a request carrying the ETag of the chosen response gets a 304.
+ * <p>
+ * URLs missing from the archive get a 404.
+ */
+public class TrafficReplayer implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficReplayer.class);
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final Map<String, List<RecordedExchange>> byPath;
+    private final Map<String, Integer> cursors = new HashMap<>();
+    private final double speed;
+    private final long firstAt;
+    private final int size;
+
+    private long replayStartMillis = -1;
+
+    public TrafficReplayer(Path file, double speed) throws IOException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Replay speed must not be negative");
+        }
+        this.speed = speed;
+
+        List<RecordedExchange> exchanges = read(file);
+        if (exchanges.isEmpty()) {
+            throw new IllegalArgumentException("Traffic archive " + file + " contains no responses");
+        }
+
+        this.byPath = new HashMap<>();
+        for (RecordedExchange exchange : exchanges) {
+            byPath.computeIfAbsent(exchange.getPath(), p -> new ArrayList<>()).add(exchange);
+        }
+        this.firstAt = exchanges.get(0).getAt();
+        this.size = exchanges.size();
+
+        log.info("Replaying {} responses for {} URLs from {}", size, byPath.size(), file);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return respond(request, 404, "{\"message\":\"Not Found\"}", Map.of());
+        }
+
+        String path = TrafficRecorder.pathOf(request.url());
+        RecordedExchange exchange = select(path);
+        if (exchange == null) {
+            log.debug("No recorded response for {}", path);
+            return respond(request, 404, "{\"message\":\"Not Found\"}", Map.of());
+        }
+
+        if (speed > 0 && exchange.getLatencyMillis() > 0) {
+            try {
+                Thread.sleep((long) (exchange.getLatencyMillis() / speed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during replay", e);
+            }
+        }
+
+        Map<String, String> headers = new HashMap<>(exchange.getHeaders() == null ? Map.of() : exchange.getHeaders());
+        String reset = headers.get("X-RateLimit-Reset");
+        if (reset != null) {
+            headers.put("X-RateLimit-Reset", Long.toString(shiftReset(reset)));
+        }
+
+        String etag = exchange.header("ETag");
+        if (etag != null && etag.equals(request.header("If-None-Match"))) {
+            return respond(request, 304, "", headers);
+        }
+        return respond(request, exchange.getStatus(), exchange.getBody(), headers);
+    }
+
+    private synchronized RecordedExchange select(String path) {
+        List<RecordedExchange> exchanges = byPath.get(path);
+        if (exchanges == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (replayStartMillis < 0) {
+            replayStartMillis = now;
+        }
+
+        if (speed == 0) {
+            int cursor = cursors.getOrDefault(path, 0);
+            cursors.put(path, Math.min(cursor + 1, exchanges.size() - 1));
+            return exchanges.get(cursor);
+        }
+
+        long recordedNow = firstAt + (long) ((now - replayStartMillis) * speed);
+        RecordedExchange chosen = exchanges.get(0);
+        for (RecordedExchange exchange : exchanges) {
+            if (exchange.getAt() > recordedNow) {
+                break;
+            }
+            chosen = exchange;
+        }
+        return chosen;
+    }
+
+    /**
+     * Maps a recorded reset time onto the replay clock. Without a clock the window is treated
+     * as resetting immediately, so a recorded exhausted limit does not stall a fast replay.
+     */
+    private long shiftReset(String recordedReset) {
+        long now = System.currentTimeMillis();
+        try {
+            long resetMillis = Long.parseLong(recordedReset.trim()) * 1000;
+            if (speed == 0) {
+                return now / 1000 + 1;
+            }
+            return (replayStartMillis + (long) ((resetMillis - firstAt) / speed)) / 1000;
+        } catch (NumberFormatException e) {
+            return now / 1000 + 1;
+        }
+    }
+
+    private static Response respond(Request request, int status, String body, Map<String, String> headers) {
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(status)
+                .message(status == 304 ? "Not Modified" : status == 404 ? "Not Found" : "Replayed")
+                .body(ResponseBody.create(body == null ? "" : body, JSON));
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static List<RecordedExchange> read(Path file) throws IOException {
+        ObjectReader reader = new ObjectMapper().readerFor(RecordedExchange.class);
+        List<RecordedExchange> exchanges = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    exchanges.add(reader.readValue(line));
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable archive record after {} records: {}", exchanges.size(), e.getMessage());
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // An archive cut short by a crash ends without a gzip trailer.
+            log.debug("Traffic archive {} ends early after {} records", file, exchanges.size());
+        }
+        return exchanges;
+    }
+}
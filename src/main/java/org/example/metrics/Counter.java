@@ -0,0 +1,42 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count.
+ */
+public class Counter extends Metric<Counter.Child> {
+
+    Counter(String name, String help, String... labelNames) {
+        super(name, help, "counter", labelNames);
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child();
+    }
+
+    @Override
+    protected void writeChild(Writer out, String labels, Child child) throws IOException {
+        out.write(getName() + braces(labels) + " " + child.get() + "\n");
+    }
+
+    public static final class Child {
+
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void inc(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+}
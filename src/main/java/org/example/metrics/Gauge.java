@@ -0,0 +1,47 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value that goes up and down. Either set explicitly, or read from a callback on every scrape.
+ */
+public class Gauge extends Metric<Gauge.Child> {
+
+    Gauge(String name, String help, String... labelNames) {
+        super(name, help, "gauge", labelNames);
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child();
+    }
+
+    @Override
+    protected void writeChild(Writer out, String labels, Child child) throws IOException {
+        out.write(getName() + braces(labels) + " " + number(child.get()) + "\n");
+    }
+
+    public static final class Child {
+
+        private volatile double value;
+        private volatile DoubleSupplier supplier;
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        /**
+         * Reads the value from {@code supplier} at scrape time; must be cheap and must not block.
+         */
+        public void setSupplier(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        public double get() {
+            DoubleSupplier s = supplier;
+            return s != null ? s.getAsDouble() : value;
+        }
+    }
+}
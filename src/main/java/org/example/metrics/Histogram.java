@@ -0,0 +1,70 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of observed values over fixed upper bounds, exported cumulatively as
+ * Prometheus expects.
+ */
+public class Histogram extends Metric<Histogram.Child> {
+
+    private final double[] buckets;
+
+    Histogram(String name, String help, double[] buckets, String... labelNames) {
+        super(name, help, "histogram", labelNames);
+        this.buckets = buckets.clone();
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child(buckets);
+    }
+
+    @Override
+    protected void writeChild(Writer out, String labels, Child child) throws IOException {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += child.counts[i].sum();
+            out.write(getName() + "_bucket{" + prefix + "le=\"" + number(buckets[i]) + "\"} " + cumulative + "\n");
+        }
+        cumulative += child.counts[buckets.length].sum();
+        out.write(getName() + "_bucket{" + prefix + "le=\"+Inf\"} " + cumulative + "\n");
+        out.write(getName() + "_sum" + braces(labels) + " " + number(child.sum.sum()) + "\n");
+        out.write(getName() + "_count" + braces(labels) + " " + cumulative + "\n");
+    }
+
+    public static final class Child {
+
+        private final double[] buckets;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Child(double[] buckets) {
+            this.buckets = buckets;
+            this.counts = new LongAdder[buckets.length + 1];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < buckets.length && value > buckets[i]) {
+                i++;
+            }
+            counts[i].increment();
+            sum.add(value);
+        }
+
+        /**
+         * Observes the seconds elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+         */
+        public void observeSince(long startNanos) {
+            observe((System.nanoTime() - startNanos) / 1e9);
+        }
+    }
+}
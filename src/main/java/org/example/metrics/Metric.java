@@ -0,0 +1,91 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A named metric family with fixed label names. {@link #labels} returns the child for one
+ * combination of label values, creating it on first use; keep the child in a field on hot
+ * paths to skip the lookup.
+ */
+public abstract class Metric<C> {
+
+    private final String name;
+    private final String help;
+    private final String type;
+    private final String[] labelNames;
+    private final Map<List<String>, C> children = new ConcurrentHashMap<>();
+
+    protected Metric(String name, String help, String type, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+        this.labelNames = labelNames;
+    }
+
+    public C labels(String... values) {
+        if (values.length != labelNames.length) {
+            throw new IllegalArgumentException(name + " expects labels " + Arrays.toString(labelNames));
+        }
+        return children.computeIfAbsent(List.of(values), v -> newChild());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    protected abstract C newChild();
+
+    protected abstract void writeChild(Writer out, String labels, C child) throws IOException;
+
+    void writeTo(Writer out) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+        for (Map.Entry<List<String>, C> child : children.entrySet()) {
+            writeChild(out, formatLabels(child.getKey()), child.getValue());
+        }
+    }
+
+    /**
+     * Label values as {@code name="value",...} without braces, empty when there are none.
+     */
+    private String formatLabels(List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labelNames[i]).append("=\"");
+            String value = values.get(i) == null ? "" : values.get(i);
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '"' -> sb.append("\\\"");
+                    case '\n' -> sb.append("\\n");
+                    default -> sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    static String number(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
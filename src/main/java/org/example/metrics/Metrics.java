@@ -0,0 +1,57 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide metrics registry. Metrics are declared as static fields next to the code they
+ * measure, the same way loggers are, and exported in the Prometheus text format by
+ * {@link MetricsServer}. Recording is cheap enough to stay on when nothing scrapes.
+ */
+public final class Metrics {
+
+    /**
+     * Bucket bounds in seconds for network round-trips and poll cycles.
+     */
+    public static final double[] LATENCY_BUCKETS = {0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    /**
+     * Bucket bounds in seconds for local disk writes.
+     */
+    public static final double[] DISK_BUCKETS = {0.0005, 0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 1};
+
+    private static final List<Metric<?>> METRICS = new CopyOnWriteArrayList<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames));
+    }
+
+    public static Gauge gauge(String name, String help, String... labelNames) {
+        return register(new Gauge(name, help, labelNames));
+    }
+
+    public static Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return register(new Histogram(name, help, buckets, labelNames));
+    }
+
+    public static void writeTo(Writer out) throws IOException {
+        for (Metric<?> metric : METRICS) {
+            metric.writeTo(out);
+        }
+    }
+
+    private static <M extends Metric<?>> M register(M metric) {
+        for (Metric<?> existing : METRICS) {
+            if (existing.getName().equals(metric.getName())) {
+                throw new IllegalArgumentException("Metric registered twice: " + metric.getName());
+            }
+        }
+        METRICS.add(metric);
+        return metric;
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.monitor;
+
+import org.example.github.GitHubClient;
+import org.example.github.model.JobsResponse;
+import org.example.github.model.WorkflowRun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the jobs of several runs concurrently so a poll cycle costs roughly one
+ * round-trip instead of one per run. The pool is bounded by {@code parallelism} and
+ * may be shared by all engines of a process, which makes it a global cap on in-flight
+ * job requests. With a parallelism of 1 requests run inline on the calling thread.
+ */
+public class JobFetcher {
+
+    private final GitHubClient client;
+    private final ExecutorService executor;
+
+    public JobFetcher(GitHubClient client, int parallelism) {
+        this.client = client;
+
+        if (parallelism <= 1) {
+            this.executor = null;
+        } else {
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "jobs-fetch-" + threadIndex.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Returns the job pages of each run, in the same order as {@code runs}. The first page of
+     * every run is fetched at once; once its {@code total_count} is known the remaining pages
+     * of all runs are fetched at once as well. The first failure cancels the outstanding
+     * requests and is rethrown unchanged.
+     */
+    public List<List<JobsResponse>> fetchAll(String owner, String repo, List<WorkflowRun> runs) {
+        List<List<JobsResponse>> results = new ArrayList<>(runs.size());
+
+        if (executor == null) {
+            for (WorkflowRun run : runs) {
+                JobsResponse first = client.listJobs(owner, repo, run.getId());
+                List<JobsResponse> pages = new ArrayList<>();
+                pages.add(first);
+                for (int page = 2; page <= pageCount(first); page++) {
+                    pages.add(client.listJobsPage(owner, repo, run.getId(), page));
+                }
+                results.add(pages);
+            }
+            return results;
+        }
+
+        List<Future<JobsResponse>> futures = new ArrayList<>();
+        try {
+            for (WorkflowRun run : runs) {
+                long runId = run.getId();
+                futures.add(executor.submit(() -> client.listJobs(owner, repo, runId)));
+            }
+
+            List<List<Future<JobsResponse>>> restByRun = new ArrayList<>(runs.size());
+            for (int i = 0; i < runs.size(); i++) {
+                JobsResponse first = await(futures.get(i));
+                List<JobsResponse> pages = new ArrayList<>();
+                pages.add(first);
+                results.add(pages);
+
+                List<Future<JobsResponse>> rest = new ArrayList<>();
+                long runId = runs.get(i).getId();
+                for (int page = 2; page <= pageCount(first); page++) {
+                    int p = page;
+                    Future<JobsResponse> f = executor.submit(() -> client.listJobsPage(owner, repo, runId, p));
+                    rest.add(f);
+                    futures.add(f);
+                }
+                restByRun.add(rest);
+            }
+
+            for (int i = 0; i < runs.size(); i++) {
+                for (Future<JobsResponse> f : restByRun.get(i)) {
+                    results.get(i).add(await(f));
+                }
+            }
+            return results;
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private static int pageCount(JobsResponse first) {
+        return first == null ? 1 : GitHubClient.pageCount(first.getTotalCount());
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private JobsResponse await(Future<JobsResponse> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching jobs", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Failed to fetch jobs: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -7,26 +7,71 @@ import org.example.github.GitHubClient;
 import org.example.github.exception.GithubApiException;
 import org.example.github.exception.RateLimitException;
 import org.example.github.model.*;
+import org.example.metrics.Counter;
+import org.example.metrics.Gauge;
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
 import org.example.monitor.backoff.BackOffStrategy;
+import org.example.state.CompletedRun;
+import org.example.state.CompletedRunCache;
 import org.example.state.MonitorState;
 import org.example.state.StateStore;
 import org.example.state.snapshot.JobSnapshot;
 import org.example.state.snapshot.RunSnapshot;
-import org.example.state.snapshot.StepSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MonitorEngine {
 
     private static final Logger log = LoggerFactory.getLogger(MonitorEngine.class);
 
+    /**
+     * Upper bound on run pages read per cycle when catching up to the high-water mark. Listings
+     * by creation watermark are not capped by it.
+     */
+    private static final int MAX_RUN_PAGES = 10;
+
+    /**
+     * How far the creation watermark trails the newest listed run, so a run created moments
+     * before it that the listing did not show yet is not filtered out.
+     */
+    private static final long DISCOVERY_OVERLAP_MILLIS = 5 * 60_000;
+
+    /**
+     * Upper bound on runs fetched per cycle only to decide whether their snapshot can go.
+     */
+    private static final int MAX_RECONCILES_PER_CYCLE = 10;
+
+    /**
+     * Job conclusions that do not count as failed in a {@link CompletedRun}.
+     */
+    private static final Set<String> SUCCESSFUL_CONCLUSIONS = Set.of("success", "skipped", "neutral");
+
+    private static final Histogram POLL_SECONDS = Metrics.histogram("ghawatch_poll_cycle_seconds",
+            "Duration of poll cycles by outcome: ok, rate_limited or error", Metrics.LATENCY_BUCKETS, "repo", "outcome");
+    private static final Gauge SNAPSHOTS = Metrics.gauge("ghawatch_tracked_snapshots",
+            "Run snapshots currently kept", "repo");
+    private static final Counter EVICTIONS = Metrics.counter("ghawatch_snapshot_evictions_total",
+            "Snapshots evicted by the retention limits without their run completing", "repo");
+    private static final Counter RECONCILES = Metrics.counter("ghawatch_snapshot_reconciles_total",
+            "Runs fetched only to decide whether their snapshot can be evicted", "repo");
+
     private final GitHubClient client;
     private final StateStore stateStore;
     private final EventEmitter emitter;
@@ -34,90 +79,481 @@ public class MonitorEngine {
     private final String repo;
     private final long pollIntervalMillis;
     private final BackOffStrategy backOff;
+    private final JobFetcher jobFetcher;
+    private final PollBudget pollBudget;
+    private final PollTiers pollTiers;
+    private final SnapshotRetention retention;
+    private final CompletedRunCache completedRuns;
+
+    public MonitorEngine(GitHubClient client,
+                         StateStore stateStore,
+                         EventEmitter emitter,
+                         String owner,
+                         String repo,
+                         long pollIntervalMillis) {
+        this(client, new JobFetcher(client, 1), null, null, null, null, stateStore, emitter, owner, repo, pollIntervalMillis);
+    }
 
+    /**
+     * @param pollBudget stretches the interval when the rate limit would not last until its
+     *                   reset; {@code null} ignores the rate limit until it is hit
+     * @param pollTiers  intervals for hot, queued and idle repositories; {@code null} always
+     *                   polls at {@code pollIntervalMillis}
+     * @param retention  bounds on kept run snapshots; {@code null} keeps them until their run
+     *                   completes
+     * @param completedRuns outcomes of completed runs, which are then never fetched again; closed
+     *                   with the state store; {@code null} fetches them whenever they are seen
+     */
     public MonitorEngine(GitHubClient client,
+                         JobFetcher jobFetcher,
+                         PollBudget pollBudget,
+                         PollTiers pollTiers,
+                         SnapshotRetention retention,
+                         CompletedRunCache completedRuns,
                          StateStore stateStore,
                          EventEmitter emitter,
                          String owner,
                          String repo,
                          long pollIntervalMillis) {
         this.client = client;
+        this.jobFetcher = jobFetcher;
+        this.pollBudget = pollBudget;
+        this.pollTiers = pollTiers;
+        this.retention = retention;
+        this.completedRuns = completedRuns;
         this.stateStore = stateStore;
         this.emitter = emitter;
         this.owner = owner;
         this.repo = repo;
         this.pollIntervalMillis = pollIntervalMillis;
         this.backOff = new BackOffStrategy(60);
+
+        this.evictedSnapshots = EVICTIONS.labels(getFullRepo());
+        this.reconciledSnapshots = RECONCILES.labels(getFullRepo());
+        SNAPSHOTS.labels(getFullRepo()).setSupplier(() -> snapshotCount);
     }
 
     private final AtomicBoolean running = new AtomicBoolean(true);
 
+    private MonitorState state;
+
+    /**
+     * API requests made by the last successful poll cycle, used to size the next delay.
+     */
+    private int lastCycleRequests = 1;
+
+    /**
+     * API requests made so far by the poll cycle in progress, counting every page of jobs.
+     */
+    private int cycleRequests;
+
+    /**
+     * Tier of each active run as of its last poll, and when it is next due. Kept in memory
+     * only; after a restart every active run is due immediately.
+     */
+    private final Map<Long, PollTier> runTiers = new HashMap<>();
+    private final Map<Long, Long> runDueAtMillis = new HashMap<>();
+
+    private PollTier lastCycleTier = PollTier.WARM;
+    private int idleCycles;
+
+    private final Counter.Child evictedSnapshots;
+    private final Counter.Child reconciledSnapshots;
+
+    /**
+     * Snapshot count as of the end of the last cycle or webhook, readable without the lock.
+     */
+    private volatile int snapshotCount;
+
+    /**
+     * Set once the final state is saved; guarded by the engine lock.
+     */
+    private boolean closed;
+
     public void start() {
+        start(() -> {
+        }, () -> {
+        });
+    }
 
-        System.out.println("Starting monitoring for " + owner + "/" + repo + "......");
+    /**
+     * Polls until the JVM shuts down. {@code beforeSave} runs once polling has stopped and
+     * before the final state is saved, e.g. to stop the webhook receiver; {@code afterStop}
+     * runs after the save, e.g. to close the event sinks once nothing emits anymore. The
+     * shutdown hook waits for both.
+     */
+    public void start(Runnable beforeSave, Runnable afterStop) {
 
-        MonitorState state = stateStore.load();
+        System.out.println("Starting monitoring for " + owner + "/" + repo + "......");
 
+        CountDownLatch stopped = new CountDownLatch(1);
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Shutdown requested..");
             running.set(false);
+            try {
+                if (!stopped.await(30, TimeUnit.SECONDS)) {
+                    log.warn("Monitor did not stop within 30s");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }));
 
-        while (running.get()) {
+        try {
+            while (running.get()) {
+                long delay = pollCycle();
+                sleepInterruptibly(delay);
+            }
+
             try {
-                log.info("[poll] starting poll cycle");
-                pollOnce(state);
-
-                backOff.reset();
-                sleepInterruptibly(pollIntervalMillis);
-
-            } catch (RateLimitException rle) {
-                long waitMs = rle.getRetryAfterMillis();
-                log.warn("Rate limited by Github. Sleeping {} ms." + waitMs);
-                sleepInterruptibly(waitMs);
-            } catch (GithubApiException ghe) {
-                int delaySec = backOff.nextDelay();
-                log.warn("Github APi error: {}. Backing off {}s and retrying.", ghe.getMessage(), delaySec);
-                sleepInterruptibly(delaySec + 1000L);
-            } catch (Exception e) {
-                int delaySec = backOff.nextDelay();
-                log.error("Unexpected error during polling: {}. Backing off {}s.", e.getMessage(), delaySec);
+                beforeSave.run();
+            } finally {
+                saveFinalState();
             }
+        } finally {
+            afterStop.run();
+            stopped.countDown();
+        }
+
+        log.info("Monitor stopped");
+    }
+
+    /**
+     * Runs a single poll cycle for this repository and returns the delay in milliseconds
+     * before the next cycle should start. Used directly by {@link MonitorScheduler} when
+     * several repositories share one process.
+     */
+    public synchronized long pollCycle() {
+        MonitorState state = loadedState();
+        long start = System.nanoTime();
+        String outcome = "error";
+
+        try {
+            log.info("[poll] {}/{} starting poll cycle", owner, repo);
+            pollOnce(state);
+            stateStore.flush();
+            outcome = "ok";
+            log.debug("[poll] etag cache hits={} misses={}, rate limit remaining={}/{}, snapshots={} evicted={}",
+                    client.getCacheHits(), client.getCacheMisses(),
+                    client.getRateLimit().getRemaining(), client.getRateLimit().getLimit(),
+                    state.getSnapshotCount(), evictedSnapshots.get());
+
+            backOff.reset();
+            return nextDelayMillis();
+
+        } catch (RateLimitException rle) {
+            outcome = "rate_limited";
+            long waitMs = rle.getRetryAfterMillis();
+            log.warn("Rate limited by Github. Sleeping {} ms.", waitMs);
+            return waitMs;
+        } catch (GithubApiException ghe) {
+            int delaySec = backOff.nextDelay();
+            log.warn("Github APi error for {}/{}: {}. Backing off {}s and retrying.", owner, repo, ghe.getMessage(), delaySec);
+            return delaySec * 1000L;
+        } catch (Exception e) {
+            int delaySec = backOff.nextDelay();
+            log.error("Unexpected error during polling {}/{}: {}. Backing off {}s.", owner, repo, e.getMessage(), delaySec);
+            return delaySec * 1000L;
+        } finally {
+            snapshotCount = state.getSnapshotCount();
+            POLL_SECONDS.labels(getFullRepo(), outcome).observeSince(start);
+        }
+    }
+
+    private long nextDelayMillis() {
+        long delay = pollTiers == null
+                ? pollIntervalMillis
+                : pollTiers.delayMillis(lastCycleTier, idleCycles);
+
+        if (pollBudget == null) {
+            return delay;
+        }
+
+        long budgetDelay = pollBudget.minDelayMillis(lastCycleRequests);
+        if (budgetDelay > delay) {
+            log.info("[poll] {}/{} stretching interval to {} ms to stay within rate limit ({} remaining)",
+                    owner, repo, budgetDelay, pollBudget.getRateLimit().getRemaining());
+            return budgetDelay;
+        }
+        return delay;
+    }
+
+    public void stop() {
+        running.set(false);
+    }
+
+    /**
+     * Saves the state and closes the stores. Webhook deliveries applied afterwards would not be
+     * persisted, so they are ignored from here on and left to the next run's polls.
+     */
+    public synchronized void saveFinalState() {
+        closed = true;
+        if (completedRuns != null) {
+            completedRuns.close();
+        }
+        if (state == null) {
+            return;
         }
 
         try {
             stateStore.save(state);
-            log.info("Final state saved.");
+            stateStore.close();
+            log.info("Final state saved for {}/{}.", owner, repo);
         } catch (Exception e) {
-            log.error("Failed to save final state: {}", e.getMessage());
+            log.error("Failed to save final state for {}/{}: {}", owner, repo, e.getMessage());
         }
+    }
 
-        log.info("Monitor stopped");
+    public String getFullRepo() {
+        return owner + "/" + repo;
     }
 
-    private void pollOnce(MonitorState state) throws IOException {
-        WorkflowRunsResponse runsResponse =
-                client.listWorkflowRuns(owner, repo);
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Snapshots dropped by the {@link SnapshotRetention} limits without their run completing.
+     */
+    public long getEvictedSnapshots() {
+        return evictedSnapshots.get();
+    }
 
-        List<WorkflowRun> runs = runsResponse == null ? null : runsResponse.getWorkflowRuns();
-        if (runs == null || runs.isEmpty()) {
-            log.debug("[poll] no runs returned");
+    /**
+     * Runs fetched only because their snapshot was due for eviction.
+     */
+    public long getReconciledSnapshots() {
+        return reconciledSnapshots.get();
+    }
+
+    /**
+     * Applies a {@code workflow_run} webhook delivery. A run that has not finished only updates
+     * its run-level snapshot; a finished one has its jobs fetched once so every job and step
+     * event is emitted before the run completes, even if some job deliveries were lost. The
+     * jobs are fetched without holding the engine lock, so a poll cycle is not held up by them.
+     */
+    public void onWorkflowRun(WorkflowRun run) {
+        if (run.getConclusion() == null) {
+            applyRunStatus(run);
+            return;
+        }
+        if (!acceptsDelivery(run.getId())) {
             return;
         }
 
-        runs.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        List<JobsResponse> jobPages;
+        try {
+            jobPages = jobFetcher.fetchAll(owner, repo, List.of(run)).get(0);
+        } catch (Exception e) {
+            // Leave the run to the next reconciliation poll.
+            log.warn("Could not fetch jobs of completed run {} in {}/{}: {}", run.getId(), owner, repo, e.getMessage());
+            trackForReconciliation(run.getId());
+            return;
+        }
+        applyCompletedRun(run, jobPages);
+    }
 
-        long maxSeenRunId = state.getLastProcessedRunId();
+    private synchronized void applyRunStatus(WorkflowRun run) {
+        MonitorState state = loadedState();
+        long runId = run.getId();
+        if (closed || isFinished(runId, state)) {
+            return;
+        }
 
-        for (WorkflowRun run : runs) {
-            long runId = run.getId();
+        RunSnapshot previous = snapshotOf(runId, state);
+        if (previous == null) {
+            emitRunStarted(runId, run.getHeadBranch(), run.getHeadSha(), run.getStatus(), runStartedAt(run));
+        }
+        if (previous == null || !Objects.equals(previous.getStatus(), run.getStatus())) {
+            state.updateSnapshot(runId, previous == null
+                    ? new RunSnapshot(runId, run.getStatus(), null, Map.of())
+                    : previous.withStatus(run.getStatus(), null));
+            state.trackRun(runId);
+        }
+        saveAfterDelivery(state);
+    }
+
+    private synchronized void applyCompletedRun(WorkflowRun run, List<JobsResponse> jobPages) {
+        MonitorState state = loadedState();
+        long runId = run.getId();
+        // A poll may have completed the run while its jobs were being fetched.
+        if (closed || isFinished(runId, state)) {
+            return;
+        }
+
+        try {
+            PollTier tier = processRunWithSnapshot(run, jobPages, state);
+            if (tier == PollTier.COLD && runId > state.getLastProcessedRunId()) {
+                // Webhooks never move the high-water mark themselves, so the next poll still
+                // discovers any run whose deliveries were lost; this one it must skip.
+                state.markCompleted(runId);
+            }
+        } catch (Exception e) {
+            log.warn("Could not apply completed run {} in {}/{}: {}", runId, owner, repo, e.getMessage());
+            state.trackRun(runId);
+        }
+        saveAfterDelivery(state);
+    }
+
+    private synchronized void trackForReconciliation(long runId) {
+        MonitorState state = loadedState();
+        if (closed || isFinished(runId, state)) {
+            return;
+        }
+        state.trackRun(runId);
+        saveAfterDelivery(state);
+    }
+
+    private synchronized boolean acceptsDelivery(long runId) {
+        return !closed && !isFinished(runId, loadedState());
+    }
+
+    private void saveAfterDelivery(MonitorState state) {
+        stateStore.save(state);
+        stateStore.flush();
+        snapshotCount = state.getSnapshotCount();
+    }
+
+    /**
+     * Applies a {@code workflow_job} webhook delivery by diffing the one job against its
+     * snapshot. The run completes through {@link #onWorkflowRun} or the next poll.
+     */
+    public synchronized void onWorkflowJob(WorkflowJob job) {
+        MonitorState state = loadedState();
+        long runId = job.getRunId();
+        if (closed || isFinished(runId, state)) {
+            return;
+        }
+
+        RunSnapshot previous = snapshotOf(runId, state);
+        if (previous == null) {
+            // A job delivery does not tell the run's status; the run delivery or next poll sets it.
+            emitRunStarted(runId, job.getHeadBranch(), job.getHeadSha(), null, job.getStartedAt());
+        }
+
+        JobSnapshot prevJob = previous == null ? null : previous.getJob(job.getId());
+        JobSnapshot currentJob = diffJob(runId, job.getHeadBranch(), job.getHeadSha(), job, prevJob);
+
+        RunSnapshot base = previous == null ? new RunSnapshot(runId, null, null, Map.of()) : previous;
+        state.updateSnapshot(runId, base.withJob(currentJob));
+        state.trackRun(runId);
+        saveAfterDelivery(state);
+    }
+
+    /**
+     * Whether a run was already reported to completion, so late or redelivered webhooks for it
+     * are ignored.
+     */
+    private boolean isFinished(long runId, MonitorState state) {
+        if (state.isMarkedCompleted(runId) || isCached(runId)) {
+            return true;
+        }
+        return runId <= state.getLastProcessedRunId()
+                && !state.getActiveRunIds().contains(runId)
+                && snapshotOf(runId, state) == null;
+    }
+
+    private boolean isCached(long runId) {
+        return completedRuns != null && completedRuns.contains(runId);
+    }
+
+    private RunSnapshot snapshotOf(long runId, MonitorState state) {
+        return state.getRunSnapshots() == null ? null : state.getRunSnapshots().get(runId);
+    }
+
+    private MonitorState loadedState() {
+        if (state == null) {
+            state = stateStore.load();
+        }
+        return state;
+    }
+
+    private void pollOnce(MonitorState state) throws IOException {
+        // Once a creation watermark is known only runs created since then are listed, which is
+        // the recent and the still unfinished ones. Before that, the very first poll reads the
+        // newest page, and later polls follow pages back to the high-water mark.
+        long highWaterMark = state.getLastProcessedRunId();
+        OffsetDateTime createdSince = state.getCreatedWatermarkMillis() == 0
+                ? null
+                : Instant.ofEpochMilli(state.getCreatedWatermarkMillis()).atOffset(ZoneOffset.UTC);
+        List<WorkflowRun> listed = client.listWorkflowRunsSince(owner, repo, highWaterMark, createdSince,
+                highWaterMark == 0 && createdSince == null ? 1 : MAX_RUN_PAGES);
+
+        Map<Long, WorkflowRun> listedById = new HashMap<>();
+        for (WorkflowRun run : listed) {
+            listedById.put(run.getId(), run);
+        }
+
+        // Runs we already know to be in progress are re-polled until they complete, even when they
+        // have dropped out of the listing or sit below the high-water mark.
+        cycleRequests = Math.max(1, (listed.size() + GitHubClient.PER_PAGE - 1) / GitHubClient.PER_PAGE);
+        long now = System.currentTimeMillis();
+
+        Map<Long, WorkflowRun> candidates = new TreeMap<>();
+        for (Long runId : List.copyOf(state.getActiveRunIds())) {
+            if (isCached(runId)) {
+                // Completed while tracked, e.g. by a webhook before a restart; nothing left to fetch.
+                dropCompleted(runId, state);
+                continue;
+            }
+            WorkflowRun run = listedById.get(runId);
 
-            if (runId <= state.getLastProcessedRunId()) {
+            // Queued runs are re-polled less often than executing ones, unless the listing
+            // already shows that their status moved on.
+            if (!isDue(runId, now) && (run == null || !statusChanged(run, state))) {
                 continue;
             }
 
+            if (run == null) {
+                run = fetchActiveRun(runId, state);
+                cycleRequests++;
+            }
+            if (run != null) {
+                candidates.put(runId, run);
+            }
+        }
+
+        // Only discovery of new runs relies on the high-water mark.
+        boolean discovered = false;
+        long maxSeenRunId = state.getLastProcessedRunId();
+        for (WorkflowRun run : listed) {
+            if (run.getId() <= state.getLastProcessedRunId()) {
+                continue;
+            }
+            if (state.isMarkedCompleted(run.getId()) || isCached(run.getId())) {
+                maxSeenRunId = Math.max(maxSeenRunId, run.getId());
+            } else {
+                candidates.put(run.getId(), run);
+                discovered = true;
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            log.debug("[poll] no new or active runs");
+            advanceHighWaterMark(state, maxSeenRunId);
+            advanceCreatedWatermark(state, listed);
+            evictStaleSnapshots(state, Set.of());
+            updateCycleTier(state, false);
+            lastCycleRequests = cycleRequests;
+            return;
+        }
+
+        List<WorkflowRun> runs = new ArrayList<>(candidates.values());
+
+        // Fetch jobs for all candidate runs at once, then diff them one by one in run id order.
+        List<List<JobsResponse>> jobPages = jobFetcher.fetchAll(owner, repo, runs);
+        cycleRequests += pageCount(jobPages);
+
+        for (int i = 0; i < runs.size(); i++) {
+            WorkflowRun run = runs.get(i);
+            long runId = run.getId();
+
             try {
-                processRunWithSnapshot(run, state);
+                PollTier tier = processRunWithSnapshot(run, jobPages.get(i), state);
+                if (tier != PollTier.COLD) {
+                    runTiers.put(runId, tier);
+                    runDueAtMillis.put(runId, now + (pollTiers == null ? 0 : pollTiers.runIntervalMillis(tier)));
+                }
             } catch (RateLimitException | GithubApiException e) {
                 throw e;
             } catch (Exception e) {
@@ -131,28 +567,200 @@ public class MonitorEngine {
             state.setLastProcessedRunId(maxSeenRunId);
             stateStore.save(state);
         }
+
+        advanceHighWaterMark(state, maxSeenRunId);
+        advanceCreatedWatermark(state, listed);
+        evictStaleSnapshots(state, candidates.keySet());
+        updateCycleTier(state, discovered);
+        lastCycleRequests = cycleRequests;
     }
 
-    private void emitRunEvents(WorkflowRun run) {
+    /**
+     * Requests behind the job pages of several runs: one per page.
+     */
+    private static int pageCount(List<List<JobsResponse>> jobPages) {
+        int pages = 0;
+        for (List<JobsResponse> run : jobPages) {
+            pages += run.size();
+        }
+        return pages;
+    }
 
-        String fullRepo = owner + "/" + repo;
-        OffsetDateTime now = OffsetDateTime.now();
+    private void advanceHighWaterMark(MonitorState state, long runId) {
+        if (runId > state.getLastProcessedRunId()) {
+            state.setLastProcessedRunId(runId);
+            stateStore.save(state);
+        }
+    }
 
-        emitter.emit(new WorkflowEvent(
-                now,
-                EventType.WORKFLOW_QUEUED,
-                fullRepo,
-                run.getId(),
-                null,
-                null,
-                run.getHeadBranch(),
-                shorten(run.getHeadSha()),
-                run.getStatus(),
-                "Workflow run detected"
-        ));
+    /**
+     * Moves the {@code created>=} filter of the run listing up to {@link #DISCOVERY_OVERLAP_MILLIS}
+     * before the newest listed run, but not past an unfinished run on the newest page, so
+     * executing runs stay in the listing instead of costing a request each. Older unfinished
+     * runs do not hold it back; that keeps the listing near one page, and they are fetched
+     * directly while active.
+     */
+    private void advanceCreatedWatermark(MonitorState state, List<WorkflowRun> listed) {
+        long newest = 0;
+        long oldestUnfinished = Long.MAX_VALUE;
+        for (int i = 0; i < listed.size(); i++) {
+            WorkflowRun run = listed.get(i);
+            if (run.getCreatedAt() == null) {
+                continue;
+            }
+            long created = run.getCreatedAt().toInstant().toEpochMilli();
+            newest = Math.max(newest, created);
+            if (i < GitHubClient.PER_PAGE && !"completed".equalsIgnoreCase(run.getStatus())) {
+                oldestUnfinished = Math.min(oldestUnfinished, created);
+            }
+        }
+        if (newest == 0) {
+            return;
+        }
+
+        long watermark = Math.min(newest - DISCOVERY_OVERLAP_MILLIS, oldestUnfinished);
+        if (watermark > state.getCreatedWatermarkMillis()) {
+            state.setCreatedWatermarkMillis(watermark);
+            stateStore.save(state);
+        }
     }
 
-    private void processRunWithSnapshot(WorkflowRun run, MonitorState state) throws IOException {
+    /**
+     * Applies the {@link SnapshotRetention} limits. Each run is fetched once more first, unless
+     * this cycle already polled it, so a run that finished while nobody looked still gets its
+     * completion events and leaves normally. Only what is still stale or over capacity after
+     * that is evicted, and its run is no longer polled.
+     */
+    private void evictStaleSnapshots(MonitorState state, Set<Long> polledThisCycle) throws IOException {
+        if (retention == null) {
+            return;
+        }
+
+        long staleBefore = System.currentTimeMillis() - retention.getTtlMillis();
+        int reconciles = 0;
+        boolean evicted = false;
+
+        for (Long runId : state.evictionCandidates(staleBefore, retention.getMaxSnapshots())) {
+            if (isCached(runId)) {
+                dropCompleted(runId, state);
+                evicted = true;
+                continue;
+            }
+            if (!polledThisCycle.contains(runId)) {
+                if (reconciles >= MAX_RECONCILES_PER_CYCLE) {
+                    // The rest waits for the next cycle rather than bursting requests.
+                    break;
+                }
+                reconciles++;
+                reconciledSnapshots.inc();
+                try {
+                    WorkflowRun run = fetchActiveRun(runId, state);
+                    cycleRequests++;
+                    if (run != null) {
+                        List<List<JobsResponse>> jobPages = jobFetcher.fetchAll(owner, repo, List.of(run));
+                        cycleRequests += pageCount(jobPages);
+                        processRunWithSnapshot(run, jobPages.get(0), state);
+                    }
+                } catch (GithubApiException e) {
+                    log.warn("Could not reconcile run {} before evicting it: {}", runId, e.getMessage());
+                    continue;
+                }
+            }
+
+            RunSnapshot snapshot = snapshotOf(runId, state);
+            if (snapshot == null) {
+                continue;
+            }
+            boolean overCapacity = state.getSnapshotCount() > retention.getMaxSnapshots();
+            boolean stale = state.updatedAt(snapshot) < staleBefore;
+            if (!overCapacity && !stale) {
+                continue;
+            }
+
+            log.warn("Evicting snapshot of run {} in {}/{} ({}); it will no longer be polled",
+                    runId, owner, repo, overCapacity ? "over capacity" : "unchanged for too long");
+            state.removeSnapshot(runId);
+            state.untrackRun(runId);
+            evictedSnapshots.inc();
+            evicted = true;
+        }
+
+        if (reconciles > 0 || evicted) {
+            stateStore.save(state);
+        }
+    }
+
+    private boolean isDue(long runId, long now) {
+        Long dueAt = runDueAtMillis.get(runId);
+        return dueAt == null || dueAt <= now;
+    }
+
+    private boolean statusChanged(WorkflowRun listedRun, MonitorState state) {
+        RunSnapshot snapshot = state.getRunSnapshots() == null ? null : state.getRunSnapshots().get(listedRun.getId());
+        return snapshot == null || !Objects.equals(snapshot.getStatus(), listedRun.getStatus());
+    }
+
+    /**
+     * The repository is as hot as its hottest active run. Discovering a new run ends any idle
+     * back-off right away.
+     */
+    private void updateCycleTier(MonitorState state, boolean discoveredNewRun) {
+        runTiers.keySet().retainAll(state.getActiveRunIds());
+        runDueAtMillis.keySet().retainAll(state.getActiveRunIds());
+
+        PollTier tier = PollTier.COLD;
+        for (Long runId : state.getActiveRunIds()) {
+            PollTier runTier = runTiers.getOrDefault(runId, PollTier.WARM);
+            if (runTier.compareTo(tier) < 0) {
+                tier = runTier;
+            }
+        }
+
+        if (tier == PollTier.COLD && !discoveredNewRun) {
+            idleCycles++;
+        } else {
+            idleCycles = 0;
+        }
+
+        if (tier != lastCycleTier) {
+            log.debug("[poll] {}/{} tier {} -> {}", owner, repo, lastCycleTier, tier);
+        }
+        lastCycleTier = tier;
+    }
+
+    private void dropCompleted(long runId, MonitorState state) {
+        log.debug("Run {} in {}/{} already completed, dropping it", runId, owner, repo);
+        state.untrackRun(runId);
+        state.removeSnapshot(runId);
+        runTiers.remove(runId);
+        runDueAtMillis.remove(runId);
+    }
+
+    /**
+     * Fetches an active run that is no longer part of the run listing. A run that GitHub no
+     * longer knows about (deleted, or the repository lost access) stops being tracked.
+     */
+    private WorkflowRun fetchActiveRun(long runId, MonitorState state) {
+        try {
+            return client.getWorkflowRun(owner, repo, runId);
+        } catch (GithubApiException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+
+            log.warn("Active run {} no longer exists, dropping it", runId);
+            state.untrackRun(runId);
+            state.removeSnapshot(runId);
+            return null;
+        }
+    }
+
+    /**
+     * Diffs a run against its previous snapshot, emits the resulting events and updates the
+     * snapshot. Returns how urgently the run needs to be polled again, {@link PollTier#COLD}
+     * once it has completed. Package-private for the diff benchmark.
+     */
+    PollTier processRunWithSnapshot(WorkflowRun run, List<JobsResponse> jobPages, MonitorState state) throws IOException {
         long runId = run.getId();
         String fullREpo = owner + "/" + repo;
 
@@ -161,21 +769,37 @@ public class MonitorEngine {
         RunSnapshot previousRunSnapshot = runSnapshots == null ? null : runSnapshots.get(runId);
 
         if (previousRunSnapshot == null) {
-            emitter.emit(new WorkflowEvent(
-                    OffsetDateTime.now(),
-                    EventType.WORKFLOW_STARTED,
-                    fullREpo,
-                    runId,
-                    null,
-                    null,
-                    run.getHeadBranch(),
-                    shorten(run.getHeadSha()),
-                    run.getStatus(),
-                    "Workflow run started"
-            ));
+            emitRunStarted(runId, run.getHeadBranch(), run.getHeadSha(), run.getStatus(), runStartedAt(run));
+        } else if (isUnchanged(run, jobPages, previousRunSnapshot)) {
+            // Nothing to emit and nothing to save; the snapshot keeps its update time.
+            return "in_progress".equalsIgnoreCase(run.getStatus()) || previousRunSnapshot.anyJobInProgress()
+                    ? PollTier.HOT
+                    : PollTier.WARM;
+        }
+
+        Map<Long, JobSnapshot> currentJobSnapshots = new HashMap<>();
+
+        // Jobs are diffed page by page as returned; the pages are never merged into one list.
+        for (JobsResponse page : jobPages) {
+            List<Job> jobs = page == null ? null : page.getJobs();
+            if (jobs == null) {
+                continue;
+            }
+
+            for (Job job : jobs) {
+                JobSnapshot prevJobSnapshot = previousRunSnapshot == null ? null : previousRunSnapshot.getJob(job.getId());
+                if (prevJobSnapshot != null && prevJobSnapshot.getFingerprint() == fingerprint(job)) {
+                    currentJobSnapshots.put(job.getId(), prevJobSnapshot);
+                } else {
+                    currentJobSnapshots.put(job.getId(),
+                            diffJob(runId, run.getHeadBranch(), run.getHeadSha(), job, prevJobSnapshot));
+                }
+            }
         }
 
-        if (previousRunSnapshot != null && previousRunSnapshot.getConclusion() == null && run.getConclusion() != null) {
+        boolean runCompletedNow = run.getConclusion() != null
+                && (previousRunSnapshot == null || previousRunSnapshot.getConclusion() == null);
+        if (runCompletedNow) {
             emitter.emit(new WorkflowEvent(
                     OffsetDateTime.now(),
                     EventType.WORKFLOW_COMPLETED,
@@ -186,123 +810,217 @@ public class MonitorEngine {
                     run.getHeadBranch(),
                     shorten(run.getHeadSha()),
                     run.getConclusion(),
-                    "Workflow run completed"
+                    "Workflow run completed",
+                    run.getUpdatedAt()
             ));
         }
 
-        JobsResponse jobsResponse = client.listJobs(owner, repo, runId);
-        List<Job> jobs = jobsResponse == null ? null : jobsResponse.getJobs();
-        if (jobs == null) jobs = List.of();
+        boolean allJobsFinished = currentJobSnapshots.values().stream()
+                .allMatch(j -> j.getConclusion() != null);
 
-        Map<Long, JobSnapshot> currentJobSnapshots = new HashMap<>();
+        if (run.getConclusion() != null && allJobsFinished) {
+            state.removeSnapshot(runId);
+            state.untrackRun(runId);
+            rememberCompleted(run, currentJobSnapshots.values());
+            return PollTier.COLD;
+        }
 
-        for (Job job : jobs) {
-            long jobId = job.getId();
-            JobSnapshot prevJobSnapshot = previousRunSnapshot != null
-                    && previousRunSnapshot.getJobs() != null ? previousRunSnapshot.getJobs().get(jobId) : null;
-
-            boolean jobStartedNow = (prevJobSnapshot == null) && (job.getStartedAt() != null || "in_progress".equalsIgnoreCase(job.getStatus()));
-            if (jobStartedNow) {
-                emitter.emit(new WorkflowEvent(
-                        OffsetDateTime.now(),
-                        EventType.JOB_STARTED,
-                        fullREpo,
-                        runId,
-                        jobId,
-                        null,
-                        run.getHeadBranch(),
-                        shorten(run.getHeadSha()),
-                        job.getStatus(),
-                        "Job started: " + safeString(job.getName())
-                ));
-            }
+        // An unchanged run keeps its snapshot, and with it the time it last changed.
+        RunSnapshot currentRunSnapshot = new RunSnapshot(runId, run.getStatus(), run.getConclusion(), currentJobSnapshots);
+        if (!currentRunSnapshot.equals(previousRunSnapshot)) {
+            state.updateSnapshot(runId, currentRunSnapshot);
+        }
+        state.trackRun(runId);
 
-            boolean jobCompletedNow = (prevJobSnapshot == null && job.getConclusion() != null)
-                    || (prevJobSnapshot != null && prevJobSnapshot.getConclusion() == null && job.getConclusion() != null);
-            if (jobCompletedNow) {
-                emitter.emit(new WorkflowEvent(
-                        OffsetDateTime.now(),
-                        EventType.JOB_COMPLETED,
-                        fullREpo,
-                        runId,
-                        jobId,
-                        null,
-                        run.getHeadBranch(),
-                        shorten(run.getHeadSha()),
-                        job.getConclusion(),
-                        "Job completed: " + safeString(job.getName())
-                ));
+        boolean executing = "in_progress".equalsIgnoreCase(run.getStatus())
+                || currentJobSnapshots.values().stream().anyMatch(j -> "in_progress".equalsIgnoreCase(j.getStatus()));
+        return executing ? PollTier.HOT : PollTier.WARM;
+    }
+
+    private void rememberCompleted(WorkflowRun run, Collection<JobSnapshot> jobs) {
+        if (completedRuns == null) {
+            return;
+        }
+        int failed = 0;
+        for (JobSnapshot job : jobs) {
+            if (!SUCCESSFUL_CONCLUSIONS.contains(job.getConclusion())) {
+                failed++;
             }
+        }
+        OffsetDateTime startedAt = runStartedAt(run);
+        completedRuns.put(new CompletedRun(run.getId(), run.getConclusion(),
+                startedAt == null ? 0 : startedAt.toInstant().toEpochMilli(),
+                run.getUpdatedAt() == null ? 0 : run.getUpdatedAt().toInstant().toEpochMilli(),
+                jobs.size(), failed));
+    }
 
-            List<Step> steps = job.getSteps();
-            Map<Integer, StepSnapshot> currentStepSnapshots = new HashMap<>();
-
-            if (steps != null && !steps.isEmpty()) {
-                for (Step step : steps) {
-                    int stepNumber = step.getNumber();
-                    StepSnapshot prevStep = prevJobSnapshot != null && prevJobSnapshot.getSteps() != null
-                            ? prevJobSnapshot.getSteps().get(stepNumber)
-                            : null;
-
-                    boolean stepStartedNow = (prevStep == null) && (step.getStartedAt() != null || "in_progress".equalsIgnoreCase(step.getStatus()));
-
-                    if (stepStartedNow) {
-                        emitter.emit(new WorkflowEvent(
-                                OffsetDateTime.now(),
-                                EventType.STEP_STARTED,
-                                fullREpo,
-                                runId,
-                                jobId,
-                                stepNumber,
-                                run.getHeadBranch(),
-                                shorten(run.getHeadSha()),
-                                step.getStatus(),
-                                "Step started: " + safeString(step.getName())
-                        ));
-
-                        boolean stepCompletedNow = (prevStep == null && step.getConclusion() != null)
-                                || (prevStep != null && prevStep.getConclusion() == null && step.getConclusion() != null);
-
-                        if (stepCompletedNow) {
-                            emitter.emit(new WorkflowEvent(
-                                    OffsetDateTime.now(),
-                                    EventType.STEP_COMPLETED,
-                                    fullREpo,
-                                    runId,
-                                    job.getId(),
-                                    step.getNumber(),
-                                    run.getHeadBranch(),
-                                    shorten(run.getHeadSha()),
-                                    step.getConclusion(),
-                                    "Step completed: " + safeString(step.getName())
-                            ));
-                        }
-                        currentStepSnapshots.put(stepNumber, new StepSnapshot(stepNumber, step.getStatus(), step.getConclusion()));
-                    }
+    /**
+     * Whether the run and every one of its jobs are exactly as in {@code previous}. Compares
+     * fingerprints only, so an unchanged run costs no allocation however many jobs it has.
+     */
+    private boolean isUnchanged(WorkflowRun run, List<JobsResponse> jobPages, RunSnapshot previous) {
+        if (!Objects.equals(run.getStatus(), previous.getStatus())
+                || !Objects.equals(run.getConclusion(), previous.getConclusion())) {
+            return false;
+        }
+
+        int jobCount = 0;
+        for (int p = 0; p < jobPages.size(); p++) {
+            JobsResponse page = jobPages.get(p);
+            List<Job> jobs = page == null ? null : page.getJobs();
+            if (jobs == null) {
+                continue;
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
+                JobSnapshot prevJob = previous.getJob(job.getId());
+                if (prevJob == null || prevJob.getFingerprint() != fingerprint(job)) {
+                    return false;
                 }
+                jobCount++;
+            }
+        }
+        return jobCount == previous.getJobCount();
+    }
 
-                currentJobSnapshots.put(jobId, new JobSnapshot(jobId, job.getStatus(), job.getConclusion(), currentStepSnapshots));
+    private static long fingerprint(Job job) {
+        long fingerprint = JobSnapshot.fingerprint(job.getStatus(), job.getConclusion());
+        List<Step> steps = job.getSteps();
+        if (steps != null) {
+            for (int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                fingerprint = JobSnapshot.fingerprintStep(fingerprint, step.getNumber(), step.getStatus(), step.getConclusion());
             }
+        }
+        return fingerprint;
+    }
+
+    private void emitRunStarted(long runId, String headBranch, String headSha, String status, OffsetDateTime sourceTime) {
+        emitter.emit(new WorkflowEvent(
+                OffsetDateTime.now(),
+                EventType.WORKFLOW_STARTED,
+                owner + "/" + repo,
+                runId,
+                null,
+                null,
+                headBranch,
+                shorten(headSha),
+                status,
+                "Workflow run started",
+                sourceTime
+        ));
+    }
+
+    /**
+     * Emits the job and step events between {@code prevJobSnapshot} and {@code job} and returns
+     * the job's new snapshot.
+     */
+    private JobSnapshot diffJob(long runId, String headBranch, String headSha, Job job, JobSnapshot prevJobSnapshot) {
+        String fullRepo = owner + "/" + repo;
+        long jobId = job.getId();
+
+        boolean jobStartedNow = hasStarted(job.getStatus(), job.getConclusion())
+                && (prevJobSnapshot == null || !hasStarted(prevJobSnapshot.getStatus(), prevJobSnapshot.getConclusion()));
+        if (jobStartedNow) {
+            emitter.emit(new WorkflowEvent(
+                    OffsetDateTime.now(),
+                    EventType.JOB_STARTED,
+                    fullRepo,
+                    runId,
+                    jobId,
+                    null,
+                    headBranch,
+                    shorten(headSha),
+                    job.getStatus(),
+                    "Job started: " + safeString(job.getName()),
+                    job.getStartedAt()
+            ));
+        }
+
+        List<Step> steps = job.getSteps();
+        JobSnapshot.Builder currentJobSnapshot = new JobSnapshot.Builder(
+                jobId, job.getStatus(), job.getConclusion(), steps == null ? 0 : steps.size());
 
-            RunSnapshot newRunSnapshot = new RunSnapshot(runId, run.getStatus(), run.getConclusion(), currentJobSnapshots);
+        if (steps != null) {
+            for (Step step : steps) {
+                int stepNumber = step.getNumber();
+                int prevStep = prevJobSnapshot == null ? -1 : prevJobSnapshot.indexOfStep(stepNumber);
 
-            boolean allJobsFinished = currentJobSnapshots.values().stream()
-                    .allMatch(j -> j.getConclusion() != null);
+                boolean stepStartedNow = hasStarted(step.getStatus(), step.getConclusion())
+                        && (prevStep < 0 || !hasStarted(prevJobSnapshot.getStepStatus(prevStep), prevJobSnapshot.getStepConclusion(prevStep)));
 
-            if (run.getConclusion() != null && allJobsFinished) {
-                if (state.getRunSnapshots() != null) {
-                    state.getRunSnapshots().remove(runId);
+                if (stepStartedNow) {
+                    emitter.emit(new WorkflowEvent(
+                            OffsetDateTime.now(),
+                            EventType.STEP_STARTED,
+                            fullRepo,
+                            runId,
+                            jobId,
+                            stepNumber,
+                            headBranch,
+                            shorten(headSha),
+                            step.getStatus(),
+                            "Step started: " + safeString(step.getName()),
+                            step.getStartedAt()
+                    ));
                 }
-            } else {
-                if (state.getRunSnapshots() == null) {
-                    state.setRunSnapshots(new HashMap<>());
+
+                boolean stepCompletedNow = step.getConclusion() != null
+                        && (prevStep < 0 || prevJobSnapshot.getStepConclusion(prevStep) == null);
+
+                if (stepCompletedNow) {
+                    emitter.emit(new WorkflowEvent(
+                            OffsetDateTime.now(),
+                            EventType.STEP_COMPLETED,
+                            fullRepo,
+                            runId,
+                            jobId,
+                            stepNumber,
+                            headBranch,
+                            shorten(headSha),
+                            step.getConclusion(),
+                            "Step completed: " + safeString(step.getName()),
+                            step.getCompletedAt()
+                    ));
                 }
-                state.getRunSnapshots().put(runId, newRunSnapshot);
+
+                currentJobSnapshot.step(stepNumber, step.getStatus(), step.getConclusion());
             }
-            stateStore.save(state);
         }
 
+        boolean jobCompletedNow = job.getConclusion() != null
+                && (prevJobSnapshot == null || prevJobSnapshot.getConclusion() == null);
+        if (jobCompletedNow) {
+            emitter.emit(new WorkflowEvent(
+                    OffsetDateTime.now(),
+                    EventType.JOB_COMPLETED,
+                    fullRepo,
+                    runId,
+                    jobId,
+                    null,
+                    headBranch,
+                    shorten(headSha),
+                    job.getConclusion(),
+                    "Job completed: " + safeString(job.getName()),
+                    job.getCompletedAt()
+            ));
+        }
+
+        return currentJobSnapshot.build();
+    }
+
+    /**
+     * A job or step counts as started once it is running or has finished; queued and waiting
+     * ones have not.
+     */
+    private boolean hasStarted(String status, String conclusion) {
+        return conclusion != null
+                || "in_progress".equalsIgnoreCase(status)
+                || "completed".equalsIgnoreCase(status);
+    }
 
+    private static OffsetDateTime runStartedAt(WorkflowRun run) {
+        return run.getRunStartedAt() != null ? run.getRunStartedAt() : run.getCreatedAt();
     }
 
     private String shorten(String sha) {
@@ -0,0 +1,136 @@
+package org.example.monitor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the poll cycles of many {@link MonitorEngine}s from one small thread pool.
+ * Each engine reschedules itself with the delay returned by its last cycle, and the
+ * initial cycles are staggered across one interval so requests do not arrive in bursts.
+ */
+public class MonitorScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorScheduler.class);
+
+    private final List<MonitorEngine> engines;
+    private final long pollIntervalMillis;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile Runnable beforeSave = () -> {
+    };
+    private volatile Runnable afterStop = () -> {
+    };
+
+    public MonitorScheduler(List<MonitorEngine> engines, int pollThreads, long pollIntervalMillis) {
+        this.engines = List.copyOf(engines);
+        this.pollIntervalMillis = pollIntervalMillis;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, pollThreads), r -> {
+            Thread t = new Thread(r, "poll-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        start(() -> {
+        }, () -> {
+        });
+    }
+
+    /**
+     * Polls until {@link #shutdown()}, which the JVM shutdown hook calls. {@code beforeSave} runs
+     * once every poll thread has stopped and before the engines save their final state, e.g. to
+     * stop the webhook receiver; {@code afterStop} runs after the save, e.g. to close the event
+     * sinks.
+     */
+    public void start(Runnable beforeSave, Runnable afterStop) {
+        this.beforeSave = beforeSave;
+        this.afterStop = afterStop;
+
+        System.out.println("Starting monitoring for " + engines.size() + " repositories......");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Shutdown requested..");
+            shutdown();
+        }));
+
+        long stagger = engines.isEmpty() ? 0 : pollIntervalMillis / engines.size();
+        for (int i = 0; i < engines.size(); i++) {
+            schedule(engines.get(i), i * stagger);
+        }
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdown();
+        }
+
+        log.info("Monitor stopped");
+    }
+
+    public void shutdown() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+
+        engines.forEach(MonitorEngine::stop);
+        executor.shutdownNow();
+
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Poll threads did not finish within 30s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            beforeSave.run();
+        } finally {
+            engines.forEach(MonitorEngine::saveFinalState);
+        }
+        try {
+            afterStop.run();
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void schedule(MonitorEngine engine, long delayMillis) {
+        if (!running.get()) {
+            return;
+        }
+
+        try {
+            executor.schedule(() -> runCycle(engine), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Scheduler stopped, not rescheduling {}", engine.getFullRepo());
+        }
+    }
+
+    private void runCycle(MonitorEngine engine) {
+        long next;
+        try {
+            next = engine.pollCycle();
+        } catch (Exception e) {
+            log.error("Poll cycle for {} failed: {}", engine.getFullRepo(), e.getMessage());
+            next = pollIntervalMillis;
+        }
+
+        schedule(engine, next);
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.monitor;
+
+import org.example.github.RateLimitTracker;
+
+/**
+ * Spreads the remaining primary rate-limit budget over the time left until it resets.
+ * Each repository gets an equal share of what remains, minus a reserve, and the delay before
+ * its next cycle is stretched so that its expected requests per cycle fit into that share.
+ * While the budget is ample the delay is zero and the configured interval applies.
+ */
+public class PollBudget {
+
+    private final RateLimitTracker rateLimit;
+    private final int repositories;
+    private final double reserveFraction;
+
+    public PollBudget(RateLimitTracker rateLimit, int repositories) {
+        this(rateLimit, repositories, 0.1);
+    }
+
+    public PollBudget(RateLimitTracker rateLimit, int repositories, double reserveFraction) {
+        this.rateLimit = rateLimit;
+        this.repositories = Math.max(1, repositories);
+        this.reserveFraction = reserveFraction;
+    }
+
+    /**
+     * Smallest delay before a repository's next cycle that keeps the process within budget,
+     * given the number of requests one cycle of that repository is expected to make.
+     */
+    public long minDelayMillis(int requestsPerCycle) {
+        if (!rateLimit.isKnown() || requestsPerCycle <= 0) {
+            return 0;
+        }
+
+        long untilReset = rateLimit.millisUntilReset();
+        if (untilReset <= 0) {
+            return 0;
+        }
+
+        double usable = rateLimit.getRemaining() - reserveFraction * rateLimit.getLimit();
+        double share = usable / repositories;
+
+        if (share < requestsPerCycle) {
+            // Not even one more cycle fits before the reset.
+            return untilReset;
+        }
+
+        double cyclesUntilReset = share / requestsPerCycle;
+        return (long) (untilReset / cyclesUntilReset);
+    }
+
+    public RateLimitTracker getRateLimit() {
+        return rateLimit;
+    }
+}
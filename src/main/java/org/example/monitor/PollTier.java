@@ -0,0 +1,14 @@
+package org.example.monitor;
+
+/**
+ * How urgently a run, or a whole repository, needs to be polled again.
+ */
+public enum PollTier {
+
+    /** A run or one of its jobs is executing; events are expected any moment. */
+    HOT,
+    /** Runs are queued or waiting but nothing executes yet. */
+    WARM,
+    /** Nothing is active; only new runs can appear. */
+    COLD
+}
@@ -0,0 +1,43 @@
+package org.example.monitor;
+
+/**
+ * Poll intervals per {@link PollTier}. Idle repositories start at the warm interval and
+ * double it on every further idle cycle up to {@code idleMaxMillis}; any active run resets
+ * that back-off immediately.
+ */
+public class PollTiers {
+
+    private final long hotMillis;
+    private final long warmMillis;
+    private final long idleMaxMillis;
+
+    public PollTiers(long hotMillis, long warmMillis, long idleMaxMillis) {
+        this.hotMillis = hotMillis;
+        this.warmMillis = warmMillis;
+        this.idleMaxMillis = Math.max(warmMillis, idleMaxMillis);
+    }
+
+    /**
+     * @param idleCycles consecutive cycles, including the current one, without active runs
+     */
+    public long delayMillis(PollTier tier, int idleCycles) {
+        return switch (tier) {
+            case HOT -> hotMillis;
+            case WARM -> warmMillis;
+            case COLD -> {
+                long delay = warmMillis;
+                for (int i = 1; i < idleCycles && delay < idleMaxMillis; i++) {
+                    delay *= 2;
+                }
+                yield Math.min(delay, idleMaxMillis);
+            }
+        };
+    }
+
+    /**
+     * How long an active run in {@code tier} may go without being re-polled.
+     */
+    public long runIntervalMillis(PollTier tier) {
+        return tier == PollTier.HOT ? hotMillis : warmMillis;
+    }
+}
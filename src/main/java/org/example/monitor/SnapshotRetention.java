@@ -0,0 +1,25 @@
+package org.example.monitor;
+
+/**
+ * Bounds on the run snapshots an engine keeps. A snapshot that has not changed for
+ * {@code ttlMillis}, or the least recently changed ones beyond {@code maxSnapshots}, are
+ * evicted after one last fetch of the run has had the chance to complete it normally.
+ */
+public class SnapshotRetention {
+
+    private final long ttlMillis;
+    private final int maxSnapshots;
+
+    public SnapshotRetention(long ttlMillis, int maxSnapshots) {
+        this.ttlMillis = ttlMillis;
+        this.maxSnapshots = Math.max(1, maxSnapshots);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getMaxSnapshots() {
+        return maxSnapshots;
+    }
+}
@@ -11,7 +11,7 @@ public class BackOffStrategy {
 
     public int nextDelay(){
         int delay = currentSeconds;
-        currentSeconds = Math.max(currentSeconds*2, maxSeconds);
+        currentSeconds = Math.min(currentSeconds * 2, maxSeconds);
         return delay;
     }
 
@@ -0,0 +1,25 @@
+package org.example.state;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a finished run as kept by {@link CompletedRunCache}. Times are epoch millis, 0
+ * when GitHub did not report them.
+ */
+@Getter
+@AllArgsConstructor
+public class CompletedRun {
+
+    private final long runId;
+    private final String conclusion;
+    private final long startedAtMillis;
+    private final long completedAtMillis;
+    private final int jobCount;
+    /** Jobs that concluded with anything other than success, skipped or neutral. */
+    private final int failedJobCount;
+
+    public long getDurationMillis() {
+        return startedAtMillis == 0 || completedAtMillis < startedAtMillis ? 0 : completedAtMillis - startedAtMillis;
+    }
+}
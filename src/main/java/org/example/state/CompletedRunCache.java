@@ -0,0 +1,319 @@
+package org.example.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persistent record of runs that have completed, so a run GitHub reports as finished can be
+ * handled without fetching it again: after a restart, on a webhook redelivery or in a lookback.
+ * Completed runs never change, so an entry is valid until it is overwritten.
+ * <p>
+ * The file ({@code completed-runs.bin} next to the state file) is a ring of {@code capacity}
+ * fixed-size records behind a small header; once full, the oldest entry is overwritten. Each
+ * {@link #put} writes one record and the header in place. Nothing is fsynced, as a lost entry
+ * only costs one refetch. An open-addressing table from run id to slot is rebuilt from the
+ * file on open, so lookups never touch the disk.
+ */
+public class CompletedRunCache implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletedRunCache.class);
+
+    private static final int MAGIC = 0x47485243; // "GHRC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 32;
+
+    /**
+     * Fixed on-disk codes for conclusions; anything else is stored as {@code unknown}.
+     */
+    private static final String[] CONCLUSIONS = {
+            "unknown", "success", "failure", "cancelled", "skipped", "neutral", "timed_out",
+            "action_required", "stale", "startup_failure"
+    };
+
+    private final Path file;
+    private final int capacity;
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+    /** Run id per slot, 0 for an empty slot. */
+    private final long[] slotRunIds;
+    /** Open-addressing table of run ids and their slot; key 0 is empty. */
+    private final long[] keys;
+    private final int[] slots;
+    private long writeCount;
+    private int size;
+
+    public CompletedRunCache(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.slotRunIds = new long[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.keys = new long[tableSize];
+        this.slots = new int[tableSize];
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (!readExisting()) {
+            channel.truncate(0);
+            writeHeader();
+        }
+    }
+
+    public synchronized boolean contains(long runId) {
+        return find(runId) >= 0;
+    }
+
+    /**
+     * The recorded outcome of {@code runId}, or {@code null} if it is not in the cache.
+     */
+    public synchronized CompletedRun get(long runId) {
+        int slot = find(runId);
+        if (slot < 0) {
+            return null;
+        }
+        try {
+            record.clear();
+            readFully(record, HEADER_BYTES + (long) slot * RECORD_BYTES);
+            record.flip();
+            return decode(record);
+        } catch (IOException e) {
+            log.warn("Failed to read completed run {} from {}: {}", runId, file, e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized void put(CompletedRun run) {
+        if (run.getRunId() <= 0 || find(run.getRunId()) >= 0) {
+            return;
+        }
+
+        int slot = (int) (writeCount % capacity);
+        long evicted = slotRunIds[slot];
+        if (evicted != 0) {
+            remove(evicted);
+            size--;
+        }
+
+        try {
+            record.clear();
+            encode(run, record);
+            record.flip();
+            writeFully(record, HEADER_BYTES + (long) slot * RECORD_BYTES);
+
+            writeCount++;
+            writeHeader();
+        } catch (IOException e) {
+            log.warn("Failed to record completed run {} in {}: {}", run.getRunId(), file, e.getMessage());
+            slotRunIds[slot] = 0;
+            return;
+        }
+
+        slotRunIds[slot] = run.getRunId();
+        insert(run.getRunId(), slot);
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the outcome of {@code runId} straight from a cache file without opening it for
+     * writing, so it is safe while a monitor is using the file. Returns {@code null} if the file
+     * does not exist or does not hold the run.
+     */
+    public static CompletedRun lookup(Path file, long runId) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+            throw new IOException("Not a completed run cache: " + file);
+        }
+        for (int at = HEADER_BYTES; at + RECORD_BYTES <= buf.limit(); at += RECORD_BYTES) {
+            if (buf.getLong(at) == runId) {
+                return decode(buf.position(at));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Where the cache of the state file {@code stateFile} lives.
+     */
+    public static Path pathFor(Path stateFile) {
+        return stateFile.resolveSibling("completed-runs.bin");
+    }
+
+    /**
+     * Loads an existing file; returns {@code false} if there is none or it cannot be used as is.
+     */
+    private boolean readExisting() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return false;
+        }
+
+        header.clear();
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            log.warn("Ignoring unrecognized completed run cache {}", file);
+            return false;
+        }
+        int storedCapacity = header.getInt();
+        header.getInt();
+        long storedWriteCount = header.getLong();
+        if (storedCapacity != capacity) {
+            log.info("Completed run cache capacity changed from {} to {}; starting it over", storedCapacity, capacity);
+            return false;
+        }
+
+        writeCount = storedWriteCount;
+        int slotsInFile = (int) Math.min(capacity, (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        ByteBuffer all = ByteBuffer.allocate(slotsInFile * RECORD_BYTES);
+        readFully(all, HEADER_BYTES);
+        all.flip();
+        for (int slot = 0; slot < slotsInFile; slot++) {
+            long runId = all.getLong(slot * RECORD_BYTES);
+            if (runId > 0 && find(runId) < 0) {
+                slotRunIds[slot] = runId;
+                insert(runId, slot);
+                size++;
+            }
+        }
+        log.info("Loaded {} completed runs from {}", size, file);
+        return true;
+    }
+
+    private void writeHeader() throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(0).putLong(writeCount).putLong(0);
+        header.flip();
+        writeFully(header, 0);
+    }
+
+    private static void encode(CompletedRun run, ByteBuffer buf) {
+        buf.putLong(run.getRunId());
+        buf.putLong(run.getStartedAtMillis());
+        buf.putLong(run.getCompletedAtMillis());
+        buf.put(conclusionCode(run.getConclusion()));
+        buf.put((byte) 0);
+        buf.putChar((char) Math.min(run.getJobCount(), Character.MAX_VALUE));
+        buf.putChar((char) Math.min(run.getFailedJobCount(), Character.MAX_VALUE));
+        buf.putShort((short) 0);
+    }
+
+    private static CompletedRun decode(ByteBuffer buf) {
+        long runId = buf.getLong();
+        long startedAt = buf.getLong();
+        long completedAt = buf.getLong();
+        int code = buf.get() & 0xFF;
+        buf.get();
+        int jobs = buf.getChar();
+        int failed = buf.getChar();
+        return new CompletedRun(runId, code < CONCLUSIONS.length ? CONCLUSIONS[code] : CONCLUSIONS[0],
+                startedAt, completedAt, jobs, failed);
+    }
+
+    private static byte conclusionCode(String conclusion) {
+        for (int i = 1; i < CONCLUSIONS.length; i++) {
+            if (CONCLUSIONS[i].equals(conclusion)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    private int find(long runId) {
+        int mask = keys.length - 1;
+        for (int i = hash(runId) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == runId) {
+                return slots[i];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long runId, int slot) {
+        int mask = keys.length - 1;
+        int i = hash(runId) & mask;
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = runId;
+        slots[i] = slot;
+    }
+
+    /**
+     * Linear-probing removal that shifts later entries of the same cluster back, so no
+     * tombstones are needed.
+     */
+    private void remove(long runId) {
+        int mask = keys.length - 1;
+        int i = hash(runId) & mask;
+        while (keys[i] != runId) {
+            if (keys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            // Move the entry into the gap unless its home lies cyclically in (gap, j].
+            boolean homeBetween = gap <= j ? gap < home && home <= j : gap < home || home <= j;
+            if (!homeBetween) {
+                keys[gap] = keys[j];
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+    }
+
+    private static int hash(long runId) {
+        long h = runId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * State store that appends compact {@link StateChange} records to a journal next to the
+ * state file ({@code state.json.journal}) instead of rewriting the whole state on every save.
+ * <p>
+ * Appends are written immediately but only fsynced once per {@code syncIntervalMillis} or on
+ * {@link #flush()}, so all changes of a poll cycle share one fsync. After
+ * {@code compactAfterRecords} records the full state is written to the state file and the
+ * journal is truncated. On startup the journal is replayed on top of the state file; a torn
+ * last record from a crash is ignored.
+ */
+public class JournaledStateStore extends StateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JournaledStateStore.class);
+
+    private final Path journalPath;
+    private final ObjectWriter changeWriter;
+    private final ObjectReader changeReader;
+    private final long syncIntervalMillis;
+    private final int compactAfterRecords;
+
+    private FileChannel journal;
+    private int recordsSinceCompaction;
+    private long lastSyncMillis;
+    private boolean unsynced;
+
+    public JournaledStateStore(String stateFile) {
+        this(stateFile, 1000, 1000);
+    }
+
+    public JournaledStateStore(String stateFile, long syncIntervalMillis, int compactAfterRecords) {
+        super(stateFile);
+        this.journalPath = Path.of(stateFile + ".journal");
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.compactAfterRecords = compactAfterRecords;
+
+        ObjectMapper compact = new ObjectMapper();
+        this.changeWriter = compact.writerFor(StateChange.class);
+        this.changeReader = compact.readerFor(StateChange.class);
+    }
+
+    @Override
+    public synchronized MonitorState load() {
+        MonitorState state = super.load();
+
+        boolean hasJournal = journalPath.toFile().length() > 0;
+        int replayed = replay(state);
+        state.drainChanges();
+
+        if (hasJournal) {
+            log.info("Replayed {} journal records", replayed);
+            // Fold the replayed records into the state file so the journal starts empty and a
+            // torn tail record cannot swallow the records appended after it.
+            compact(state);
+        }
+
+        return state;
+    }
+
+    @Override
+    public synchronized void save(MonitorState state) {
+        List<StateChange> changes = state.drainChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(256 * changes.size());
+            for (StateChange change : changes) {
+                changeWriter.writeValue(buf, change);
+                buf.write('\n');
+            }
+
+            FileChannel channel = openJournal();
+            ByteBuffer bytes = ByteBuffer.wrap(buf.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+
+            unsynced = true;
+            recordsSinceCompaction += changes.size();
+            SAVE_SECONDS.labels("journal").observeSince(start);
+            SAVE_BYTES.labels("journal").inc(buf.size());
+            log.debug("Journaled {} state changes ({} bytes)", changes.size(), buf.size());
+
+            if (recordsSinceCompaction >= compactAfterRecords) {
+                compact(state);
+            } else if (System.currentTimeMillis() - lastSyncMillis >= syncIntervalMillis) {
+                sync();
+            }
+        } catch (IOException e) {
+            log.error("Failed to append to state journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Failed to sync state journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        closeJournal();
+    }
+
+    /**
+     * Writes the full state through {@link StateStore#save} and truncates the journal. If we
+     * crash in between, replaying the old records over the new state file is harmless because
+     * every change is idempotent.
+     */
+    private void compact(MonitorState state) {
+        super.save(state);
+
+        try {
+            FileChannel channel = openJournal();
+            channel.truncate(0);
+            channel.force(false);
+            recordsSinceCompaction = 0;
+            unsynced = false;
+            lastSyncMillis = System.currentTimeMillis();
+            log.debug("Compacted state journal");
+        } catch (IOException e) {
+            log.error("Failed to truncate state journal", e);
+        }
+    }
+
+    private int replay(MonitorState state) {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    state.apply(changeReader.readValue(line));
+                    count++;
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable journal record after {} records: {}", count, e.getMessage());
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read state journal {}", journalPath, e);
+        }
+        return count;
+    }
+
+    private void sync() throws IOException {
+        if (unsynced && journal != null) {
+            journal.force(false);
+            unsynced = false;
+        }
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    private FileChannel openJournal() throws IOException {
+        if (journal == null) {
+            journal = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return journal;
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Failed to close state journal: {}", e.getMessage());
+        }
+        journal = null;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.state;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -7,7 +8,14 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.example.state.snapshot.RunSnapshot;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,13 +26,191 @@ public class MonitorState {
     @JsonProperty("last_processed_run_id")
     private long lastProcessedRunId;
 
+    /**
+     * Creation time, in epoch millis, from which runs are listed with a {@code created>=}
+     * filter; 0 lists without one. Runs created earlier have completed or are in
+     * {@link #activeRunIds}.
+     */
+    @JsonProperty("created_watermark")
+    private long createdWatermarkMillis;
+
     private Map<Long, RunSnapshot> runSnapshots;
 
+    /**
+     * Runs that were seen but have not completed yet. They are re-polled directly on every
+     * cycle, independent of {@link #lastProcessedRunId}. Null only in a state file written before
+     * active runs were tracked, until {@link #migrateLegacyActiveRuns()}.
+     */
+    @JsonProperty("active_run_ids")
+    private SortedSet<Long> activeRunIds;
+
+    /**
+     * Runs above {@link #lastProcessedRunId} that webhook deliveries already reported to
+     * completion, so the poll that discovers them does not report them again. Dropped as the
+     * high-water mark passes them.
+     */
+    @JsonProperty("completed_above_hwm")
+    private SortedSet<Long> completedAboveHighWaterMark = new TreeSet<>();
+
+    /**
+     * Mutations made through this class since the last {@link #drainChanges()}; not persisted.
+     */
+    @JsonIgnore
+    private final List<StateChange> pendingChanges = new ArrayList<>();
+
+    /**
+     * Stands in for the update time of snapshots loaded from files that did not record one.
+     */
+    @JsonIgnore
+    private final long createdAtMillis = System.currentTimeMillis();
+
     public MonitorState(long lastProcessedRunId) {
         this.lastProcessedRunId = lastProcessedRunId;
     }
 
+    public void setLastProcessedRunId(long lastProcessedRunId) {
+        if (this.lastProcessedRunId != lastProcessedRunId) {
+            pendingChanges.add(StateChange.of(StateChange.Op.HIGH_WATER_MARK, lastProcessedRunId));
+        }
+        this.lastProcessedRunId = lastProcessedRunId;
+        if (completedAboveHighWaterMark != null) {
+            completedAboveHighWaterMark.headSet(lastProcessedRunId + 1).clear();
+        }
+    }
+
+    /**
+     * Records that a run above the high-water mark has already been reported as completed.
+     */
+    public void markCompleted(long runId) {
+        if (runId <= lastProcessedRunId) {
+            return;
+        }
+        if (completedAboveHighWaterMark == null) {
+            completedAboveHighWaterMark = new TreeSet<>();
+        }
+        if (completedAboveHighWaterMark.add(runId)) {
+            pendingChanges.add(StateChange.of(StateChange.Op.MARK_COMPLETED, runId));
+        }
+    }
+
+    public boolean isMarkedCompleted(long runId) {
+        return completedAboveHighWaterMark != null && completedAboveHighWaterMark.contains(runId);
+    }
+
+    public void setCreatedWatermarkMillis(long createdWatermarkMillis) {
+        if (this.createdWatermarkMillis != createdWatermarkMillis) {
+            pendingChanges.add(StateChange.createdWatermark(createdWatermarkMillis));
+        }
+        this.createdWatermarkMillis = createdWatermarkMillis;
+    }
+
     public void updateSnapshot(long runId, RunSnapshot snapshot) {
+        if (runSnapshots == null) {
+            runSnapshots = new HashMap<>();
+        }
         runSnapshots.put(runId, snapshot);
+        pendingChanges.add(new StateChange(StateChange.Op.PUT_SNAPSHOT, runId, snapshot, null));
+    }
+
+    public void removeSnapshot(long runId) {
+        if (runSnapshots != null && runSnapshots.remove(runId) != null) {
+            pendingChanges.add(StateChange.of(StateChange.Op.REMOVE_SNAPSHOT, runId));
+        }
+    }
+
+    public SortedSet<Long> getActiveRunIds() {
+        return activeRunIds == null ? Collections.emptySortedSet() : activeRunIds;
+    }
+
+    /**
+     * State files written before active runs were tracked only have snapshots; every one of
+     * them is an active run. Called once when such a file is loaded. Returns whether anything
+     * was migrated.
+     */
+    boolean migrateLegacyActiveRuns() {
+        if (activeRunIds != null) {
+            return false;
+        }
+        activeRunIds = runSnapshots == null ? new TreeSet<>() : new TreeSet<>(runSnapshots.keySet());
+        return true;
+    }
+
+    public void trackRun(long runId) {
+        if (activeRunIds == null) {
+            activeRunIds = new TreeSet<>();
+        }
+        if (activeRunIds.add(runId)) {
+            pendingChanges.add(StateChange.of(StateChange.Op.TRACK_RUN, runId));
+        }
+    }
+
+    public void untrackRun(long runId) {
+        if (activeRunIds != null && activeRunIds.remove(runId)) {
+            pendingChanges.add(StateChange.of(StateChange.Op.UNTRACK_RUN, runId));
+        }
+    }
+
+    /**
+     * Runs whose snapshots should be evicted, least recently updated first: every snapshot not
+     * updated since {@code staleBeforeMillis}, then the oldest ones beyond {@code maxSnapshots}.
+     */
+    public List<Long> evictionCandidates(long staleBeforeMillis, int maxSnapshots) {
+        if (runSnapshots == null || runSnapshots.isEmpty()) {
+            return List.of();
+        }
+
+        List<RunSnapshot> byAge = new ArrayList<>(runSnapshots.values());
+        byAge.sort(Comparator.comparingLong(this::updatedAt));
+
+        int overCapacity = Math.max(0, byAge.size() - maxSnapshots);
+        List<Long> candidates = new ArrayList<>();
+        for (int i = 0; i < byAge.size(); i++) {
+            RunSnapshot snapshot = byAge.get(i);
+            if (i >= overCapacity && updatedAt(snapshot) >= staleBeforeMillis) {
+                break;
+            }
+            candidates.add(snapshot.getRunId());
+        }
+        return candidates;
+    }
+
+    @JsonIgnore
+    public int getSnapshotCount() {
+        return runSnapshots == null ? 0 : runSnapshots.size();
+    }
+
+    /**
+     * When {@code snapshot} last changed; snapshots from older state files count from when
+     * this state was loaded.
+     */
+    public long updatedAt(RunSnapshot snapshot) {
+        return snapshot.getUpdatedAt() == 0 ? createdAtMillis : snapshot.getUpdatedAt();
+    }
+
+    /**
+     * Returns and forgets the changes recorded since the previous call.
+     */
+    public List<StateChange> drainChanges() {
+        if (pendingChanges.isEmpty()) {
+            return List.of();
+        }
+        List<StateChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        return changes;
+    }
+
+    /**
+     * Re-applies a change read back from a journal.
+     */
+    public void apply(StateChange change) {
+        switch (change.getOp()) {
+            case PUT_SNAPSHOT -> updateSnapshot(change.getRunId(), change.getSnapshot());
+            case REMOVE_SNAPSHOT -> removeSnapshot(change.getRunId());
+            case HIGH_WATER_MARK -> setLastProcessedRunId(change.getRunId());
+            case CREATED_WATERMARK -> setCreatedWatermarkMillis(change.getWatermarkMillis());
+            case TRACK_RUN -> trackRun(change.getRunId());
+            case UNTRACK_RUN -> untrackRun(change.getRunId());
+            case MARK_COMPLETED -> markCompleted(change.getRunId());
+        }
     }
 }
@@ -0,0 +1,41 @@
+package org.example.state;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.state.snapshot.RunSnapshot;
+
+/**
+ * One mutation of a {@link MonitorState}. {@link JournaledStateStore} appends these to its
+ * journal instead of rewriting the whole state, and replays them on startup. Applying a
+ * change twice has the same effect as applying it once.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StateChange {
+
+    public enum Op {
+        PUT_SNAPSHOT,
+        REMOVE_SNAPSHOT,
+        HIGH_WATER_MARK,
+        CREATED_WATERMARK,
+        TRACK_RUN,
+        UNTRACK_RUN,
+        MARK_COMPLETED
+    }
+
+    private final Op op;
+    private final long runId;
+    private final RunSnapshot snapshot;
+    /** Epoch millis of a {@link Op#CREATED_WATERMARK} change. */
+    private final Long watermarkMillis;
+
+    public static StateChange of(Op op, long runId) {
+        return new StateChange(op, runId, null, null);
+    }
+
+    public static StateChange createdWatermark(long millis) {
+        return new StateChange(Op.CREATED_WATERMARK, 0, null, millis);
+    }
+}
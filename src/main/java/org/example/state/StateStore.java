@@ -2,6 +2,9 @@ package org.example.state;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.metrics.Counter;
+import org.example.metrics.Histogram;
+import org.example.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,11 +16,16 @@ import java.nio.file.StandardCopyOption;
 
 public class StateStore {
 
+    static final Histogram SAVE_SECONDS = Metrics.histogram("ghawatch_state_save_seconds",
+            "Duration of state saves by kind: file (full rewrite) or journal (append)", Metrics.DISK_BUCKETS, "kind");
+    static final Counter SAVE_BYTES = Metrics.counter("ghawatch_state_save_bytes_total",
+            "Bytes written by state saves by kind: file or journal", "kind");
+
     private final Logger log = LoggerFactory.getLogger(StateStore.class);
 
     private final ObjectMapper mapper;
 
-    private final File stateFile;
+    protected final File stateFile;
 
     public StateStore(String stateFile) {
         this.stateFile = new File(stateFile);
@@ -46,8 +54,15 @@ public class StateStore {
 
         try {
             MonitorState state = mapper.readValue(stateFile, MonitorState.class);
+            state.drainChanges();
             log.info("Loaded state: last_processed_run_id={}", state.getLastProcessedRunId());
 
+            if (state.migrateLegacyActiveRuns()) {
+                // Rewritten right away, so a journal replayed on top starts from the migrated set.
+                log.info("Migrated {} snapshots of an older state file to active runs", state.getActiveRunIds().size());
+                writeStateFile(state);
+            }
+
             return state;
         } catch (Exception e) {
             log.info("Failed to read state file. Using default state.", e);
@@ -55,7 +70,18 @@ public class StateStore {
         }
     }
 
+    /**
+     * Persists {@code state}. This implementation rewrites the whole file on every call.
+     */
     public synchronized void save(MonitorState state) {
+        writeStateFile(state);
+    }
+
+    private void writeStateFile(MonitorState state) {
+        // A full rewrite captures every pending change.
+        state.drainChanges();
+
+        long start = System.nanoTime();
         try {
             Path dir = stateFile.getParentFile().toPath();
             if (!Files.exists(dir)) {
@@ -64,12 +90,24 @@ public class StateStore {
 
             Path tempFile = Files.createTempFile(dir, "state-", ".json");
             mapper.writerWithDefaultPrettyPrinter().writeValue(tempFile.toFile(), state);
+            long bytes = Files.size(tempFile);
 
             Files.move(tempFile, stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            SAVE_SECONDS.labels("file").observeSince(start);
+            SAVE_BYTES.labels("file").inc(bytes);
             log.info("State saved: {}", state.getLastProcessedRunId());
 
         } catch (IOException e) {
             log.error("Failed to save state file", e);
         }
     }
+
+    /**
+     * Makes previously saved changes durable. Called once per poll cycle.
+     */
+    public void flush() {
+    }
+
+    public void close() {
+    }
 }
@@ -1,17 +1,211 @@
 package org.example.state.snapshot;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
-@Getter
-@AllArgsConstructor
+/**
+ * Last observed state of a job. Steps are packed into parallel arrays sorted by step number,
+ * with status and conclusion as byte codes, which keeps thousands of tracked jobs cheap. The
+ * JSON form is still a map of {@link StepSnapshot}s keyed by step number.
+ * <p>
+ * A {@linkplain #getFingerprint() fingerprint} over the job's status, conclusion and steps
+ * lets a poll recognize an unchanged job without diffing it. It is derived, not persisted.
+ */
+@EqualsAndHashCode
 public class JobSnapshot {
 
     private final long jobId;
-    private final String status;
-    private final String conclusion;
+    private final byte status;
+    private final byte conclusion;
 
-    private final Map<Integer, StepSnapshot> steps;
+    private final int[] stepNumbers;
+    private final byte[] stepStatuses;
+    private final byte[] stepConclusions;
+
+    @EqualsAndHashCode.Exclude
+    private final long fingerprint;
+
+    private JobSnapshot(long jobId, byte status, byte conclusion,
+                        int[] stepNumbers, byte[] stepStatuses, byte[] stepConclusions) {
+        this.jobId = jobId;
+        this.status = status;
+        this.conclusion = conclusion;
+        this.stepNumbers = stepNumbers;
+        this.stepStatuses = stepStatuses;
+        this.stepConclusions = stepConclusions;
+        this.fingerprint = computeFingerprint();
+    }
+
+    @JsonCreator
+    public JobSnapshot(@JsonProperty("jobId") long jobId,
+                       @JsonProperty("status") String status,
+                       @JsonProperty("conclusion") String conclusion,
+                       @JsonProperty("steps") Map<Integer, StepSnapshot> steps) {
+        this.jobId = jobId;
+        this.status = StatusCodes.encode(status);
+        this.conclusion = StatusCodes.encode(conclusion);
+        this.stepNumbers = new int[size(steps)];
+        this.stepStatuses = new byte[size(steps)];
+        this.stepConclusions = new byte[size(steps)];
+
+        if (steps != null) {
+            int i = 0;
+            for (StepSnapshot step : new TreeMap<>(steps).values()) {
+                stepNumbers[i] = step.getNumber();
+                stepStatuses[i] = StatusCodes.encode(step.getStatus());
+                stepConclusions[i] = StatusCodes.encode(step.getConclusion());
+                i++;
+            }
+        }
+        this.fingerprint = computeFingerprint();
+    }
+
+    /**
+     * Starts the fingerprint of a job as received from GitHub; continue it with
+     * {@link #fingerprintStep} for each step in order. Allocates nothing.
+     */
+    public static long fingerprint(String status, String conclusion) {
+        return mix(mix(FINGERPRINT_SEED, StatusCodes.encode(status)), StatusCodes.encode(conclusion));
+    }
+
+    public static long fingerprintStep(long fingerprint, int number, String status, String conclusion) {
+        return mix(mix(mix(fingerprint, number), StatusCodes.encode(status)), StatusCodes.encode(conclusion));
+    }
+
+    private long computeFingerprint() {
+        long h = mix(mix(FINGERPRINT_SEED, status), conclusion);
+        for (int i = 0; i < stepNumbers.length; i++) {
+            h = mix(mix(mix(h, stepNumbers[i]), stepStatuses[i]), stepConclusions[i]);
+        }
+        return h;
+    }
+
+    // 64-bit FNV-1a over whole values rather than bytes.
+    private static final long FINGERPRINT_SEED = 0xcbf29ce484222325L;
+
+    private static long mix(long h, int value) {
+        return (h ^ value) * 0x100000001b3L;
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    @JsonIgnore
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getStatus() {
+        return StatusCodes.decode(status);
+    }
+
+    public String getConclusion() {
+        return StatusCodes.decode(conclusion);
+    }
+
+    /**
+     * Steps as a map for the JSON form; built on every call.
+     */
+    @JsonProperty("steps")
+    public Map<Integer, StepSnapshot> getSteps() {
+        Map<Integer, StepSnapshot> steps = new TreeMap<>();
+        for (int i = 0; i < stepNumbers.length; i++) {
+            steps.put(stepNumbers[i], new StepSnapshot(stepNumbers[i], getStepStatus(i), getStepConclusion(i)));
+        }
+        return steps;
+    }
+
+    @JsonIgnore
+    public int getStepCount() {
+        return stepNumbers.length;
+    }
+
+    /**
+     * Index of step {@code number}, or a negative value if the job has no such step.
+     */
+    public int indexOfStep(int number) {
+        return Arrays.binarySearch(stepNumbers, number);
+    }
+
+    public String getStepStatus(int index) {
+        return StatusCodes.decode(stepStatuses[index]);
+    }
+
+    public String getStepConclusion(int index) {
+        return StatusCodes.decode(stepConclusions[index]);
+    }
+
+    /**
+     * Collects the steps of one job in order and packs them into a {@link JobSnapshot}.
+     */
+    public static final class Builder {
+
+        private final long jobId;
+        private final byte status;
+        private final byte conclusion;
+
+        private int[] numbers;
+        private byte[] statuses;
+        private byte[] conclusions;
+        private int count;
+        private boolean sorted = true;
+
+        public Builder(long jobId, String status, String conclusion, int expectedSteps) {
+            this.jobId = jobId;
+            this.status = StatusCodes.encode(status);
+            this.conclusion = StatusCodes.encode(conclusion);
+            this.numbers = new int[expectedSteps];
+            this.statuses = new byte[expectedSteps];
+            this.conclusions = new byte[expectedSteps];
+        }
+
+        public Builder step(int number, String status, String conclusion) {
+            if (count == numbers.length) {
+                int capacity = Math.max(4, count * 2);
+                numbers = Arrays.copyOf(numbers, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                conclusions = Arrays.copyOf(conclusions, capacity);
+            }
+            if (count > 0 && numbers[count - 1] >= number) {
+                sorted = false;
+            }
+            numbers[count] = number;
+            statuses[count] = StatusCodes.encode(status);
+            conclusions[count] = StatusCodes.encode(conclusion);
+            count++;
+            return this;
+        }
+
+        public JobSnapshot build() {
+            if (!sorted) {
+                return new JobSnapshot(jobId, StatusCodes.decode(status), StatusCodes.decode(conclusion), unpacked());
+            }
+            if (count != numbers.length) {
+                numbers = Arrays.copyOf(numbers, count);
+                statuses = Arrays.copyOf(statuses, count);
+                conclusions = Arrays.copyOf(conclusions, count);
+            }
+            return new JobSnapshot(jobId, status, conclusion, numbers, statuses, conclusions);
+        }
+
+        private Map<Integer, StepSnapshot> unpacked() {
+            // GitHub lists steps in order; this only runs for unexpected payloads.
+            Map<Integer, StepSnapshot> steps = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                steps.put(numbers[i], new StepSnapshot(numbers[i], StatusCodes.decode(statuses[i]), StatusCodes.decode(conclusions[i])));
+            }
+            return steps;
+        }
+    }
+
+    private static int size(Map<?, ?> map) {
+        return map == null ? 0 : map.size();
+    }
 }
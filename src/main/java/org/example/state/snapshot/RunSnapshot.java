@@ -1,17 +1,160 @@
 package org.example.state.snapshot;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
-@Getter
-@AllArgsConstructor
+/**
+ * Last observed state of a run. Two snapshots are equal when the run, its jobs and steps are
+ * in the same state, regardless of when they were taken.
+ * <p>
+ * Jobs are kept in an array sorted by job id and looked up by binary search; the JSON form is
+ * still a map of {@link JobSnapshot}s keyed by job id.
+ */
+@EqualsAndHashCode
 public class RunSnapshot {
 
     private final long runId;
-    private final String status;
-    private final String conclusion;
+    private final byte status;
+    private final byte conclusion;
 
-    private final Map<Long, JobSnapshot> jobs;
+    private final long[] jobIds;
+    private final JobSnapshot[] jobs;
+
+    /**
+     * When the run last changed, in epoch millis; 0 in state files written before this was kept.
+     */
+    @EqualsAndHashCode.Exclude
+    private final long updatedAt;
+
+    private RunSnapshot(long runId, byte status, byte conclusion, long[] jobIds, JobSnapshot[] jobs, long updatedAt) {
+        this.runId = runId;
+        this.status = status;
+        this.conclusion = conclusion;
+        this.jobIds = jobIds;
+        this.jobs = jobs;
+        this.updatedAt = updatedAt;
+    }
+
+    @JsonCreator
+    public RunSnapshot(@JsonProperty("runId") long runId,
+                       @JsonProperty("status") String status,
+                       @JsonProperty("conclusion") String conclusion,
+                       @JsonProperty("jobs") Map<Long, JobSnapshot> jobs,
+                       @JsonProperty("updatedAt") long updatedAt) {
+        this(runId, StatusCodes.encode(status), StatusCodes.encode(conclusion),
+                new long[jobs == null ? 0 : jobs.size()], new JobSnapshot[jobs == null ? 0 : jobs.size()], updatedAt);
+
+        if (jobs != null) {
+            int i = 0;
+            for (Map.Entry<Long, JobSnapshot> job : new TreeMap<>(jobs).entrySet()) {
+                this.jobIds[i] = job.getKey();
+                this.jobs[i] = job.getValue();
+                i++;
+            }
+        }
+    }
+
+    public RunSnapshot(long runId, String status, String conclusion, Map<Long, JobSnapshot> jobs) {
+        this(runId, status, conclusion, jobs, System.currentTimeMillis());
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public String getStatus() {
+        return StatusCodes.decode(status);
+    }
+
+    public String getConclusion() {
+        return StatusCodes.decode(conclusion);
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Jobs as a map for the JSON form; built on every call.
+     */
+    @JsonProperty("jobs")
+    public Map<Long, JobSnapshot> getJobs() {
+        Map<Long, JobSnapshot> map = new TreeMap<>();
+        for (int i = 0; i < jobIds.length; i++) {
+            map.put(jobIds[i], jobs[i]);
+        }
+        return map;
+    }
+
+    @JsonIgnore
+    public int getJobCount() {
+        return jobs.length;
+    }
+
+    /**
+     * The job with {@code jobId}, or {@code null} if the run has no such job.
+     */
+    public JobSnapshot getJob(long jobId) {
+        int index = Arrays.binarySearch(jobIds, jobId);
+        return index < 0 ? null : jobs[index];
+    }
+
+    /**
+     * This run with its status changed and its jobs kept, stamped as updated now.
+     */
+    public RunSnapshot withStatus(String status, String conclusion) {
+        return new RunSnapshot(runId, StatusCodes.encode(status), StatusCodes.encode(conclusion),
+                jobIds, jobs, System.currentTimeMillis());
+    }
+
+    /**
+     * This run with {@code job} added or replaced, stamped as updated now.
+     */
+    public RunSnapshot withJob(JobSnapshot job) {
+        int index = Arrays.binarySearch(jobIds, job.getJobId());
+        long[] ids = jobIds;
+        JobSnapshot[] newJobs;
+        if (index >= 0) {
+            newJobs = jobs.clone();
+            newJobs[index] = job;
+        } else {
+            int insertAt = -index - 1;
+            ids = new long[jobIds.length + 1];
+            newJobs = new JobSnapshot[jobs.length + 1];
+            System.arraycopy(jobIds, 0, ids, 0, insertAt);
+            System.arraycopy(jobs, 0, newJobs, 0, insertAt);
+            ids[insertAt] = job.getJobId();
+            newJobs[insertAt] = job;
+            System.arraycopy(jobIds, insertAt, ids, insertAt + 1, jobIds.length - insertAt);
+            System.arraycopy(jobs, insertAt, newJobs, insertAt + 1, jobs.length - insertAt);
+        }
+        return new RunSnapshot(runId, status, conclusion, ids, newJobs, System.currentTimeMillis());
+    }
+
+    public boolean anyJobInProgress() {
+        for (JobSnapshot job : jobs) {
+            if ("in_progress".equals(job.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether every job has a conclusion.
+     */
+    public boolean allJobsFinished() {
+        for (JobSnapshot job : jobs) {
+            if (job.getConclusion() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
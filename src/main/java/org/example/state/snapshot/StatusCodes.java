@@ -0,0 +1,63 @@
+package org.example.state.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * Encodes GitHub status and conclusion strings as single bytes for the compact snapshots.
+ * Code 0 is {@code null}; the values GitHub documents have fixed codes, and any other value
+ * seen at runtime is assigned the next free code so it still round-trips.
+ */
+final class StatusCodes {
+
+    static final byte NULL = 0;
+
+    private static final String UNKNOWN = "unknown";
+
+    private static volatile String[] values = {
+            null,
+            "queued", "in_progress", "completed", "waiting", "requested", "pending",
+            "success", "failure", "cancelled", "skipped", "neutral", "timed_out",
+            "action_required", "stale", "startup_failure",
+            UNKNOWN
+    };
+
+    private StatusCodes() {
+    }
+
+    static byte encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+
+        String[] current = values;
+        for (int i = 1; i < current.length; i++) {
+            if (current[i].equals(value)) {
+                return (byte) i;
+            }
+        }
+        return register(value);
+    }
+
+    static String decode(byte code) {
+        String[] current = values;
+        int index = code & 0xFF;
+        return index < current.length ? current[index] : UNKNOWN;
+    }
+
+    private static synchronized byte register(String value) {
+        String[] current = values;
+        for (int i = 1; i < current.length; i++) {
+            if (current[i].equals(value)) {
+                return (byte) i;
+            }
+        }
+        if (current.length > 0xFF) {
+            return encode(UNKNOWN);
+        }
+
+        String[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = value.intern();
+        values = next;
+        return (byte) current.length;
+    }
+}
@@ -1,10 +1,12 @@
 package org.example.state.snapshot;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 @Getter
 @AllArgsConstructor
+@EqualsAndHashCode
 public class StepSnapshot {
 
     private final int number;
@@ -0,0 +1,31 @@
+package org.example.webhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import org.example.github.model.WorkflowJob;
+import org.example.github.model.WorkflowRun;
+
+/**
+ * The parts of a {@code workflow_run} or {@code workflow_job} webhook payload the monitor
+ * uses. Only one of {@link #workflowRun} and {@link #workflowJob} is set.
+ */
+@Getter
+public class WebhookPayload {
+
+    private String action;
+
+    @JsonProperty("workflow_run")
+    private WorkflowRun workflowRun;
+
+    @JsonProperty("workflow_job")
+    private WorkflowJob workflowJob;
+
+    private Repository repository;
+
+    @Getter
+    public static class Repository {
+
+        @JsonProperty("full_name")
+        private String fullName;
+    }
+}
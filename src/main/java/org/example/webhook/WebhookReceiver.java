@@ -0,0 +1,258 @@
+package org.example.webhook;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.monitor.MonitorEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP endpoint for GitHub {@code workflow_run} and {@code workflow_job} webhooks.
+ * Deliveries are checked against {@code X-Hub-Signature-256}, routed by repository and
+ * applied to that repository's {@link MonitorEngine}, which diffs them like a poll result.
+ * <p>
+ * A verified delivery is answered with 202 at once and queued; a single thread applies the
+ * queue in arrival order, so a slow poll cycle holding the engine never pushes the response
+ * past GitHub's delivery timeout. A receiver without a secret accepts every delivery, so it
+ * has to be asked for explicitly with {@code insecure}.
+ */
+public class WebhookReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookReceiver.class);
+
+    public static final String PATH = "/webhook";
+
+    /**
+     * GitHub caps webhook payloads at 25 MB.
+     */
+    private static final int MAX_PAYLOAD_BYTES = 25 * 1024 * 1024;
+
+    /**
+     * Accepted deliveries waiting to be applied; past this, deliveries are answered with 503
+     * and GitHub can redeliver them.
+     */
+    private static final int MAX_QUEUED_DELIVERIES = 10_000;
+
+    /**
+     * How long {@link #stop()} waits for queued deliveries to be applied.
+     */
+    private static final long DRAIN_SECONDS = 10;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor applier;
+    private final byte[] secret;
+    private final Map<String, MonitorEngine> enginesByRepo = new HashMap<>();
+    private final ObjectReader payloadReader;
+
+    private boolean stopped;
+
+    /**
+     * @param insecure accept unsigned deliveries when {@code secret} is empty; otherwise a
+     *                 missing secret is rejected
+     */
+    public WebhookReceiver(InetSocketAddress address, String secret, boolean insecure,
+                           Iterable<MonitorEngine> engines) throws IOException {
+        this.secret = secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        if (this.secret == null && !insecure) {
+            throw new IllegalArgumentException("A webhook secret is required unless unsigned deliveries are allowed");
+        }
+        for (MonitorEngine engine : engines) {
+            enginesByRepo.put(engine.getFullRepo().toLowerCase(Locale.ROOT), engine);
+        }
+
+        this.payloadReader = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readerFor(WebhookPayload.class);
+
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "webhook-receiver");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.applier = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_DELIVERIES), r -> {
+            Thread t = new Thread(r, "webhook-apply");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Receiving webhooks on http://{}:{}{}",
+                server.getAddress().getHostString(), server.getAddress().getPort(), PATH);
+        if (secret == null) {
+            log.warn("No webhook secret configured; accepting unauthenticated deliveries from anyone who can reach {}",
+                    server.getAddress());
+        }
+    }
+
+    /**
+     * Stops accepting deliveries and waits up to {@value #DRAIN_SECONDS}s for the accepted ones
+     * to be applied.
+     */
+    public synchronized void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        server.stop(1);
+        executor.shutdownNow();
+
+        applier.shutdown();
+        try {
+            if (!applier.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                int dropped = applier.shutdownNow().size();
+                log.warn("Webhook deliveries still being applied after {}s; dropped {} queued ones", DRAIN_SECONDS, dropped);
+            }
+        } catch (InterruptedException e) {
+            applier.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "POST only");
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_PAYLOAD_BYTES + 1);
+            }
+            if (body.length > MAX_PAYLOAD_BYTES) {
+                respond(exchange, 413, "payload too large");
+                return;
+            }
+
+            if (!signatureMatches(body, exchange.getRequestHeaders().getFirst("X-Hub-Signature-256"))) {
+                log.warn("Rejected webhook delivery {} with a bad signature",
+                        exchange.getRequestHeaders().getFirst("X-GitHub-Delivery"));
+                respond(exchange, 401, "bad signature");
+                return;
+            }
+
+            String event = exchange.getRequestHeaders().getFirst("X-GitHub-Event");
+            if ("ping".equals(event)) {
+                respond(exchange, 200, "pong");
+                return;
+            }
+            if (!"workflow_run".equals(event) && !"workflow_job".equals(event)) {
+                respond(exchange, 202, "ignored");
+                return;
+            }
+
+            WebhookPayload payload;
+            try {
+                payload = payloadReader.readValue(body);
+            } catch (IOException e) {
+                respond(exchange, 400, "invalid payload");
+                return;
+            }
+
+            MonitorEngine engine = payload.getRepository() == null || payload.getRepository().getFullName() == null
+                    ? null
+                    : enginesByRepo.get(payload.getRepository().getFullName().toLowerCase(Locale.ROOT));
+            if (engine == null) {
+                respond(exchange, 202, "repository not monitored");
+                return;
+            }
+
+            if (payload.getWorkflowRun() == null && payload.getWorkflowJob() == null) {
+                respond(exchange, 400, "missing " + event);
+                return;
+            }
+
+            log.debug("[webhook] {} {} for {}", event, payload.getAction(), engine.getFullRepo());
+
+            try {
+                applier.execute(() -> apply(event, engine, payload));
+            } catch (RejectedExecutionException e) {
+                log.warn("Webhook queue full or stopped; rejected {} delivery for {}", event, engine.getFullRepo());
+                respond(exchange, 503, "busy");
+                return;
+            }
+
+            respond(exchange, 202, "accepted");
+        }
+    }
+
+    private void apply(String event, MonitorEngine engine, WebhookPayload payload) {
+        try {
+            if (payload.getWorkflowRun() != null) {
+                engine.onWorkflowRun(payload.getWorkflowRun());
+            } else {
+                engine.onWorkflowJob(payload.getWorkflowJob());
+            }
+        } catch (Exception e) {
+            log.error("Failed to apply {} delivery for {}: {}", event, engine.getFullRepo(), e.getMessage());
+        }
+    }
+
+    private boolean signatureMatches(byte[] body, String header) {
+        if (secret == null) {
+            return true;
+        }
+        if (header == null || !header.startsWith("sha256=")) {
+            return false;
+        }
+
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] expected = mac.doFinal(body);
+            byte[] actual = HexFormat.of().parseHex(header.substring("sha256=".length()));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
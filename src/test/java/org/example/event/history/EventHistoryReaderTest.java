@@ -0,0 +1,191 @@
+package org.example.event.history;
+
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks query results against a brute-force filter over the events that were written: over
+ * sealed, indexed segments and the unindexed tail of the active one, across several history
+ * directories, and after retention deleted segments.
+ */
+class EventHistoryReaderTest {
+
+    private static final long BASE_MILLIS = Instant.parse("2024-05-01T00:00:00Z").toEpochMilli();
+    private static final String[] BRANCHES = {"main", "dev", "feature/x", null};
+    private static final EventType[] TYPES = EventType.values();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesBruteForceAcrossSealedAndActiveSegments() throws IOException {
+        Path dir = tempDir.resolve("history");
+        List<WorkflowEvent> written = new ArrayList<>();
+
+        // Small segments: the events end up in several sealed segments plus the active one,
+        // whose index is not saved while the store stays open.
+        try (EventHistory history = new EventHistory(dir, 96 * 1024)) {
+            Random random = new Random(7);
+            for (int i = 0; i < 3_000; i++) {
+                WorkflowEvent event = randomEvent(random, i);
+                history.append(event);
+                written.add(event);
+            }
+            history.flush();
+
+            assertTrue(EventHistory.segments(dir).size() >= 3, "expected at least three segments");
+            EventHistoryReader reader = new EventHistoryReader(dir);
+            long middle = BASE_MILLIS + 1_500 * 100L;
+
+            assertQuery(reader, written, 0, Long.MAX_VALUE, null, null, null, Set.of(), null);
+            assertQuery(reader, written, middle, middle + 60_000, null, null, null, Set.of(), null);
+            assertQuery(reader, written, middle - 100_000, middle, null, "main", null, Set.of(EventType.WORKFLOW_COMPLETED), "failure");
+            assertQuery(reader, written, 0, Long.MAX_VALUE, "org/r7", null, null, Set.of(), null);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, null, null, 4L, Set.of(), null);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, "org/r3", "dev", null, Set.of(EventType.JOB_STARTED), null);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, null, null, null, Set.of(EventType.JOB_COMPLETED, EventType.STEP_COMPLETED), "failure");
+            assertQuery(reader, written, 0, Long.MAX_VALUE, "org/none", null, null, Set.of(), null);
+        }
+
+        // Once closed, the active segment is indexed as well.
+        assertQuery(new EventHistoryReader(dir), written, 0, Long.MAX_VALUE, null, "feature/x", null, Set.of(), "success");
+    }
+
+    @Test
+    void mergesHistoryDirectoriesByTime() throws IOException {
+        List<WorkflowEvent> written = new ArrayList<>();
+        try (EventHistory legacy = new EventHistory(tempDir, 1 << 20);
+             EventHistory single = new EventHistory(tempDir.resolve("org/r1"), 1 << 20);
+             EventHistory set = new EventHistory(tempDir.resolve("set-0123456789ab"), 1 << 20)) {
+            EventHistory[] writers = {legacy, single, set};
+            Random random = new Random(11);
+            for (int i = 0; i < 600; i++) {
+                WorkflowEvent event = randomEvent(random, i);
+                writers[random.nextInt(writers.length)].append(event);
+                written.add(event);
+            }
+            for (EventHistory writer : writers) {
+                writer.flush();
+            }
+
+            // Each writer appends in time order here, so the merge must restore the global order.
+            written.sort((a, b) -> a.getTimeStamp().compareTo(b.getTimeStamp()));
+            EventHistoryReader reader = new EventHistoryReader(tempDir);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, null, null, null, Set.of(), null);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, null, "main", null, Set.of(), null);
+            assertQuery(reader, written, 0, Long.MAX_VALUE, "org/r5", null, null, Set.of(EventType.STEP_STARTED), null);
+        }
+    }
+
+    @Test
+    void retentionDeletesOldestSealedSegmentsWithTheirIndex() throws IOException {
+        Path dir = tempDir.resolve("history");
+        Random random = new Random(3);
+        try (EventHistory history = new EventHistory(dir, 16 * 1024)) {
+            for (int i = 0; i < 1_000; i++) {
+                history.append(randomEvent(random, i));
+            }
+        }
+        List<Path> before = EventHistory.segments(dir);
+        assertTrue(before.size() >= 5, "expected at least five segments");
+
+        // The two oldest segments were last written ten days ago.
+        for (Path old : before.subList(0, 2)) {
+            Files.setLastModifiedTime(old, FileTime.from(Instant.now().minusSeconds(10 * 86_400)));
+        }
+        new EventHistory(dir, 16 * 1024, 7 * 86_400_000L, 0).close();
+        List<Path> afterAge = EventHistory.segments(dir);
+        assertEquals(before.subList(2, before.size()), afterAge);
+        assertFalse(Files.exists(SegmentIndex.pathFor(before.get(0))));
+        assertFalse(Files.exists(SegmentIndex.pathFor(before.get(1))));
+
+        // A size limit smaller than one segment keeps only the active segment.
+        new EventHistory(dir, 16 * 1024, 0, 1).close();
+        List<Path> afterSize = EventHistory.segments(dir);
+        assertEquals(List.of(before.get(before.size() - 1)), afterSize);
+        assertTrue(Files.exists(SegmentIndex.pathFor(afterSize.get(0))));
+
+        long remaining = new EventHistoryReader(dir).count(query(0, Long.MAX_VALUE, null, null, null, Set.of(), null, 0));
+        assertTrue(remaining > 0 && remaining < 1_000, "only the active segment's events are left: " + remaining);
+    }
+
+    private static WorkflowEvent randomEvent(Random random, int i) {
+        long time = BASE_MILLIS + i * 100L + random.nextInt(50);
+        int type = random.nextInt(TYPES.length);
+        long runId = 1 + i / 200;
+        return new WorkflowEvent(
+                Instant.ofEpochMilli(time).atOffset(ZoneOffset.UTC),
+                TYPES[type],
+                "org/r" + random.nextInt(10),
+                runId,
+                type >= 3 ? runId * 1000 + 1 : null,
+                type >= 5 ? 2 : null,
+                BRANCHES[random.nextInt(BRANCHES.length)],
+                "abc1234",
+                random.nextInt(10) == 0 ? "failure" : "success",
+                "event " + i,
+                Instant.ofEpochMilli(time - 1_500).atOffset(ZoneOffset.UTC));
+    }
+
+    private static EventHistoryQuery query(long from, long to, String repo, String branch, Long runId,
+                                           Set<EventType> types, String status, int limit) {
+        return new EventHistoryQuery(from, to, repo, branch, runId, types, status, limit);
+    }
+
+    /**
+     * Compares count, an unlimited query and a limited one against filtering {@code written}.
+     */
+    private static void assertQuery(EventHistoryReader reader, List<WorkflowEvent> written, long from, long to,
+                                    String repo, String branch, Long runId, Set<EventType> types, String status)
+            throws IOException {
+        Predicate<WorkflowEvent> matches = e -> {
+            long time = e.getTimeStamp().toInstant().toEpochMilli();
+            return time >= from && time < to
+                    && (repo == null || repo.equals(e.getRepo()))
+                    && (branch == null || branch.equals(e.getBranch().orElse(null)))
+                    && (runId == null || runId == e.getRunId())
+                    && (types.isEmpty() || types.contains(e.getEventType()))
+                    && (status == null || status.equals(e.getStatus().orElse(null)));
+        };
+        List<String> expected = written.stream().filter(matches).map(EventHistoryReaderTest::key).toList();
+        String description = "repo=" + repo + " branch=" + branch + " run=" + runId + " types=" + types + " status=" + status;
+
+        assertEquals(expected.size(), reader.count(query(from, to, repo, branch, runId, types, status, 0)), description);
+        assertEquals(expected, keys(reader.query(query(from, to, repo, branch, runId, types, status, 0))), description);
+        List<String> newest = expected.subList(Math.max(0, expected.size() - 25), expected.size());
+        assertEquals(newest, keys(reader.query(query(from, to, repo, branch, runId, types, status, 25))), description);
+    }
+
+    private static List<String> keys(List<WorkflowEvent> events) {
+        return events.stream().map(EventHistoryReaderTest::key).toList();
+    }
+
+    /**
+     * Every field that survives the round trip, so a wrongly decoded record is caught as well.
+     */
+    private static String key(WorkflowEvent e) {
+        return String.join("|", e.getMessage().orElse(""), e.getTimeStamp().toInstant().toString(), e.getEventType().name(),
+                e.getRepo(), Long.toString(e.getRunId()), Objects.toString(e.getJobId().orElse(null)),
+                Objects.toString(e.getStepNumber().orElse(null)), Objects.toString(e.getBranch().orElse(null)),
+                Objects.toString(e.getStatus().orElse(null)), Objects.toString(e.getSourceTime().map(t -> t.toInstant()).orElse(null)));
+    }
+}
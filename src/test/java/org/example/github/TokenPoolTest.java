@@ -0,0 +1,59 @@
+package org.example.github;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPoolTest {
+
+    @Test
+    void singleTokenIsStillUsedAfterUnauthorized() {
+        TokenPool pool = TokenPool.of("secret");
+        Credential token = pool.getCredentials().get(0);
+
+        pool.reportUnauthorized(token);
+
+        assertTrue(token.isQuarantined());
+        assertEquals(0, pool.usableCount());
+        assertSame(token, pool.select(Set.of()), "the only credential is retried rather than given up on");
+    }
+
+    @Test
+    void quarantinedTokenIsSkippedWhileAnotherIsUsable() {
+        Credential first = Credential.ofToken("first", "a");
+        Credential second = Credential.ofToken("second", "b");
+        TokenPool pool = new TokenPool(List.of(first, second));
+
+        pool.reportUnauthorized(first);
+
+        assertSame(second, pool.select(Set.of()));
+        assertSame(first, pool.select(Set.of(second)));
+        assertEquals(1, pool.usableCount());
+    }
+
+    @Test
+    void quarantineGrowsWithRepeatedRejectionsAndResetsOnSuccess() {
+        Credential token = Credential.ofToken("token", "a");
+
+        token.onUnauthorized();
+        long first = token.millisUntilUsable();
+        token.onUnauthorized();
+        long second = token.millisUntilUsable();
+        assertTrue(first > 0 && first <= 60_000);
+        assertTrue(second > 60_000 && second <= 120_000);
+
+        token.onAuthorized();
+        assertTrue(token.isQuarantined(), "success does not lift the current quarantine early");
+        Credential fresh = Credential.ofToken("fresh", "b");
+        fresh.onUnauthorized();
+        fresh.onAuthorized();
+        fresh.onUnauthorized();
+        assertFalse(fresh.millisUntilUsable() > 60_000, "the escalation starts over after a success");
+    }
+}
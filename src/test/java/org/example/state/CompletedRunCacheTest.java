@@ -0,0 +1,143 @@
+package org.example.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Drives the cache past its capacity with ids drawn from a small range, so the ring overwrites
+ * entries and the table sees long probe clusters and many backward-shift removals, and checks
+ * it against a plain map kept the same way.
+ */
+class CompletedRunCacheTest {
+
+    private static final int CAPACITY = 50;
+    private static final int MAX_RUN_ID = 400;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesReferenceAcrossOverwritesAndReopen() throws Exception {
+        Path file = tempDir.resolve("completed-runs.bin");
+        Reference reference = new Reference(CAPACITY);
+        Random random = new Random(42);
+
+        try (CompletedRunCache cache = new CompletedRunCache(file, CAPACITY)) {
+            for (int i = 0; i < 2_000; i++) {
+                CompletedRun run = run(1 + random.nextInt(MAX_RUN_ID));
+                cache.put(run);
+                reference.put(run);
+                if (i % 97 == 0) {
+                    assertMatches(reference, cache);
+                }
+            }
+            assertMatches(reference, cache);
+        }
+
+        try (CompletedRunCache reopened = new CompletedRunCache(file, CAPACITY)) {
+            assertMatches(reference, reopened);
+            for (long runId = 1; runId <= MAX_RUN_ID; runId++) {
+                assertSame(reference.runs.get(runId), CompletedRunCache.lookup(file, runId), runId);
+            }
+
+            // The ring continues where it left off after the reopen.
+            for (int i = 0; i < 300; i++) {
+                CompletedRun run = run(1 + random.nextInt(MAX_RUN_ID));
+                reopened.put(run);
+                reference.put(run);
+            }
+            assertMatches(reference, reopened);
+        }
+    }
+
+    @Test
+    void collidingIdsSurviveRemovalOfTheirNeighbours() throws Exception {
+        Path file = tempDir.resolve("completed-runs.bin");
+        Reference reference = new Reference(8);
+
+        // Consecutive ids that are multiples of the table size share a home slot more often
+        // than random ones; overwriting them one by one shifts the rest of their cluster.
+        try (CompletedRunCache cache = new CompletedRunCache(file, 8)) {
+            for (long runId = 128; runId <= 128 * 40; runId += 128) {
+                CompletedRun run = run(runId);
+                cache.put(run);
+                reference.put(run);
+                assertMatches(reference, cache);
+            }
+        }
+    }
+
+    @Test
+    void ignoresDuplicatesAndInvalidIds() throws Exception {
+        try (CompletedRunCache cache = new CompletedRunCache(tempDir.resolve("completed-runs.bin"), 4)) {
+            cache.put(new CompletedRun(7, "success", 0, 0, 1, 0));
+            cache.put(new CompletedRun(7, "failure", 0, 0, 1, 1));
+            cache.put(run(0));
+
+            assertEquals(1, cache.size());
+            assertEquals("success", cache.get(7).getConclusion());
+            assertNull(cache.get(0));
+        }
+    }
+
+    private static CompletedRun run(long runId) {
+        String[] conclusions = {"success", "failure", "cancelled", "skipped"};
+        return new CompletedRun(runId, conclusions[(int) (runId % conclusions.length)],
+                runId * 1000, runId * 1000 + 5_000, (int) (runId % 7), (int) (runId % 3));
+    }
+
+    private static void assertMatches(Reference reference, CompletedRunCache cache) {
+        assertEquals(reference.runs.size(), cache.size());
+        for (long runId = 1; runId <= MAX_RUN_ID * 128L; runId += runId < MAX_RUN_ID ? 1 : 128) {
+            CompletedRun expected = reference.runs.get(runId);
+            assertEquals(expected != null, cache.contains(runId), "contains " + runId);
+            assertSame(expected, cache.get(runId), runId);
+        }
+    }
+
+    private static void assertSame(CompletedRun expected, CompletedRun actual, long runId) {
+        if (expected == null) {
+            assertNull(actual, "run " + runId);
+            return;
+        }
+        assertEquals(expected.getRunId(), actual.getRunId(), "run " + runId);
+        assertEquals(expected.getConclusion(), actual.getConclusion(), "conclusion of " + runId);
+        assertEquals(expected.getStartedAtMillis(), actual.getStartedAtMillis(), "start of " + runId);
+        assertEquals(expected.getCompletedAtMillis(), actual.getCompletedAtMillis(), "completion of " + runId);
+        assertEquals(expected.getJobCount(), actual.getJobCount(), "jobs of " + runId);
+        assertEquals(expected.getFailedJobCount(), actual.getFailedJobCount(), "failed jobs of " + runId);
+    }
+
+    /**
+     * The ring the cache is meant to be: a run already present is skipped, otherwise it takes
+     * the next slot and drops whatever was there.
+     */
+    private static final class Reference {
+
+        private final long[] slots;
+        private final Map<Long, CompletedRun> runs = new HashMap<>();
+        private long writeCount;
+
+        Reference(int capacity) {
+            this.slots = new long[capacity];
+        }
+
+        void put(CompletedRun run) {
+            if (runs.containsKey(run.getRunId())) {
+                return;
+            }
+            int slot = (int) (writeCount++ % slots.length);
+            runs.remove(slots[slot]);
+            slots[slot] = run.getRunId();
+            runs.put(run.getRunId(), run);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.state.snapshot.RunSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledStateStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysJournalOnReopen() throws Exception {
+        Path stateFile = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+
+        JournaledStateStore store = new JournaledStateStore(stateFile.toString(), 1000, 1000);
+        MonitorState state = store.load();
+        applySampleChanges(state, store);
+        store.close();
+
+        assertFalse(Files.exists(stateFile), "no compaction yet, so only the journal was written");
+        assertTrue(Files.size(journal) > 0);
+
+        MonitorState reloaded = new JournaledStateStore(stateFile.toString(), 1000, 1000).load();
+        assertSampleState(reloaded);
+    }
+
+    @Test
+    void ignoresTornLastRecord() throws Exception {
+        Path stateFile = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+
+        JournaledStateStore store = new JournaledStateStore(stateFile.toString(), 1000, 1000);
+        MonitorState state = store.load();
+        applySampleChanges(state, store);
+        store.close();
+
+        // A crash in the middle of an append leaves half a line behind.
+        String record = new ObjectMapper().writeValueAsString(StateChange.of(StateChange.Op.TRACK_RUN, 99));
+        Files.writeString(journal, record.substring(0, record.length() / 2), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        JournaledStateStore reopened = new JournaledStateStore(stateFile.toString(), 1000, 1000);
+        MonitorState reloaded = reopened.load();
+        assertSampleState(reloaded);
+        assertFalse(reloaded.getActiveRunIds().contains(99L));
+        assertEquals(0, Files.size(journal), "the replayed records are folded into the state file");
+
+        // Records appended after the torn one must not be lost behind it.
+        reloaded.trackRun(50);
+        reopened.save(reloaded);
+        reopened.close();
+        assertTrue(new JournaledStateStore(stateFile.toString(), 1000, 1000).load().getActiveRunIds().contains(50L));
+    }
+
+    @Test
+    void compactsIntoStateFile() throws Exception {
+        Path stateFile = tempDir.resolve("state.json");
+        Path journal = tempDir.resolve("state.json.journal");
+
+        JournaledStateStore store = new JournaledStateStore(stateFile.toString(), 1000, 3);
+        MonitorState state = store.load();
+        for (long runId = 1; runId <= 4; runId++) {
+            state.trackRun(runId);
+            store.save(state);
+        }
+
+        assertTrue(Files.exists(stateFile), "three records trigger a compaction");
+        List<String> journaled = Files.readAllLines(journal);
+        assertEquals(1, journaled.size(), "only the record after the compaction is left: " + journaled);
+
+        state.untrackRun(2);
+        state.setLastProcessedRunId(4);
+        store.save(state);
+        store.close();
+
+        MonitorState reloaded = new JournaledStateStore(stateFile.toString(), 1000, 3).load();
+        assertEquals(List.of(1L, 3L, 4L), List.copyOf(reloaded.getActiveRunIds()));
+        assertEquals(4, reloaded.getLastProcessedRunId());
+    }
+
+    private static void applySampleChanges(MonitorState state, StateStore store) {
+        state.setLastProcessedRunId(100);
+        state.setCreatedWatermarkMillis(1_714_640_000_000L);
+        store.save(state);
+
+        state.trackRun(101);
+        state.trackRun(102);
+        state.updateSnapshot(101, new RunSnapshot(101, "in_progress", null, Map.of()));
+        state.updateSnapshot(102, new RunSnapshot(102, "queued", null, Map.of()));
+        store.save(state);
+
+        state.untrackRun(102);
+        state.removeSnapshot(102);
+        state.markCompleted(105);
+        store.save(state);
+    }
+
+    private static void assertSampleState(MonitorState state) {
+        assertEquals(100, state.getLastProcessedRunId());
+        assertEquals(1_714_640_000_000L, state.getCreatedWatermarkMillis());
+        assertEquals(List.of(101L), List.copyOf(state.getActiveRunIds()));
+        assertNotNull(state.getRunSnapshots().get(101L));
+        assertEquals("in_progress", state.getRunSnapshots().get(101L).getStatus());
+        assertNull(state.getRunSnapshots().get(102L));
+        assertTrue(state.isMarkedCompleted(105));
+    }
+}
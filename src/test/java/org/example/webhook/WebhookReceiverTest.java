@@ -0,0 +1,219 @@
+package org.example.webhook;
+
+import org.example.event.EventEmitter;
+import org.example.event.EventType;
+import org.example.event.WorkflowEvent;
+import org.example.event.sink.EventSink;
+import org.example.github.GitHubClient;
+import org.example.monitor.MonitorEngine;
+import org.example.state.StateStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Posts recorded GitHub payloads to a receiver on an ephemeral port and checks the responses
+ * and the events that reach the sinks.
+ */
+class WebhookReceiverTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+
+    @TempDir
+    Path tempDir;
+
+    private final List<WorkflowEvent> events = new CopyOnWriteArrayList<>();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private MonitorEngine engine;
+    private WebhookReceiver receiver;
+
+    @BeforeEach
+    void startReceiver() throws IOException {
+        EventSink capture = events::add;
+        engine = new MonitorEngine(new GitHubClient("unused"), new StateStore(tempDir.resolve("state.json").toString()),
+                new EventEmitter(List.of(capture)), "octo-org", "hello-world", 60_000);
+        receiver = start(SECRET, false);
+    }
+
+    @AfterEach
+    void stopReceiver() {
+        receiver.stop();
+    }
+
+    @Test
+    void appliesSignedJobDelivery() throws Exception {
+        byte[] body = payload("workflow_job_in_progress.json");
+
+        HttpResponse<String> response = post(receiver, "workflow_job", body, sign(SECRET, body));
+
+        assertEquals(202, response.statusCode());
+        awaitEvents(3);
+        assertEquals(List.of(EventType.WORKFLOW_STARTED, EventType.JOB_STARTED, EventType.STEP_STARTED),
+                events.stream().map(WorkflowEvent::getEventType).limit(3).toList());
+        assertEquals(5428957371L, events.get(0).getRunId());
+        assertEquals("octo-org/hello-world", events.get(0).getRepo());
+        assertEquals(Optional.empty(), events.get(0).getStatus(), "a job delivery does not tell the run's status");
+    }
+
+    @Test
+    void appliesSignedRunDelivery() throws Exception {
+        byte[] body = payload("workflow_run_queued.json");
+
+        assertEquals(202, post(receiver, "workflow_run", body, sign(SECRET, body)).statusCode());
+        awaitEvents(1);
+        assertEquals(EventType.WORKFLOW_STARTED, events.get(0).getEventType());
+        assertEquals(Optional.of("queued"), events.get(0).getStatus());
+        assertEquals(Optional.of("feature/login"), events.get(0).getBranch());
+    }
+
+    @Test
+    void rejectsBadSignature() throws Exception {
+        byte[] body = payload("workflow_job_in_progress.json");
+
+        HttpResponse<String> response = post(receiver, "workflow_job", body, sign("not the secret", body));
+
+        assertEquals(401, response.statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void rejectsMissingSignature() throws Exception {
+        byte[] body = payload("workflow_job_in_progress.json");
+
+        assertEquals(401, post(receiver, "workflow_job", body, null).statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void rejectsSignatureOfAlteredBody() throws Exception {
+        byte[] body = payload("workflow_job_in_progress.json");
+        String signature = sign(SECRET, body);
+        body[body.length - 2] = ' ';
+
+        assertEquals(401, post(receiver, "workflow_job", body, signature).statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void rejectsOversizedBody() throws Exception {
+        byte[] body = new byte[25 * 1024 * 1024 + 1];
+
+        assertEquals(413, post(receiver, "workflow_job", body, sign(SECRET, body)).statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void rejectsUnparseablePayload() throws Exception {
+        byte[] body = "{\"workflow_job\": [".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(400, post(receiver, "workflow_job", body, sign(SECRET, body)).statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void acceptsButIgnoresOtherRepositories() throws Exception {
+        byte[] body = new String(payload("workflow_job_in_progress.json"), StandardCharsets.UTF_8)
+                .replace("octo-org/hello-world", "octo-org/other")
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(202, post(receiver, "workflow_job", body, sign(SECRET, body)).statusCode());
+        assertNothingApplied();
+    }
+
+    @Test
+    void answersPing() throws Exception {
+        byte[] body = "{\"zen\":\"Keep it logically awesome.\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(200, post(receiver, "ping", body, sign(SECRET, body)).statusCode());
+    }
+
+    @Test
+    void requiresSecretUnlessInsecure() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> start(null, false));
+        assertThrows(IllegalArgumentException.class, () -> start("", false));
+
+        WebhookReceiver insecure = start(null, true);
+        try {
+            byte[] body = payload("workflow_run_queued.json");
+            assertEquals(202, post(insecure, "workflow_run", body, null).statusCode());
+            awaitEvents(1);
+        } finally {
+            insecure.stop();
+        }
+    }
+
+    private WebhookReceiver start(String secret, boolean insecure) throws IOException {
+        WebhookReceiver started = new WebhookReceiver(new InetSocketAddress("127.0.0.1", 0), secret, insecure, List.of(engine));
+        started.start();
+        return started;
+    }
+
+    private HttpResponse<String> post(WebhookReceiver target, String event, byte[] body, String signature)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + target.getPort() + WebhookReceiver.PATH))
+                .header("X-GitHub-Event", event)
+                .header("X-GitHub-Delivery", "72d3162e-cc78-11e3-81ab-4c9367dc0958")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (signature != null) {
+            request.header("X-Hub-Signature-256", signature);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String sign(String secret, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+    }
+
+    private static byte[] payload(String name) throws IOException {
+        try (InputStream in = WebhookReceiverTest.class.getResourceAsStream("/webhook/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing test payload " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (events.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected " + count + " events, got " + events);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Rejected deliveries never reach the queue; stopping the receiver drains anything that did.
+     */
+    private void assertNothingApplied() {
+        receiver.stop();
+        assertTrue(events.isEmpty(), () -> "Unexpected events " + events);
+    }
+}